@@ -0,0 +1,133 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Users and their carts saved the way UserController.createUser saves them, several to a
+ * transaction, with Hibernate's JDBC batching switched off (batchSize 1) and at the configured size.
+ * The statements counter is the number of JDBC statements prepared per iteration, one per round
+ * trip; divided by the rows counter it gives the round trips per saved user.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final String USERNAME_PREFIX = "batch-insert-";
+
+    @Param({"1", "10", "100"})
+    private int users;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserRepository userRepository;
+
+    private CartRepository cartRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    private long firstCartId;
+
+    private long sequence;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RoundTrips {
+
+        public long statements;
+
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            statements = 0;
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConfigurableApplicationContext application = Fixtures.application();
+        transactionTemplate = application.getBean(TransactionTemplate.class);
+        entityManagerFactory = application.getBean(EntityManagerFactory.class);
+        userRepository = application.getBean(UserRepository.class);
+        cartRepository = application.getBean(CartRepository.class);
+        jdbcTemplate = application.getBean(JdbcTemplate.class);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Setup(Level.Iteration)
+    public void markFirstCart() {
+        firstCartId = 0;
+    }
+
+    /**
+     * Deletes what the iteration saved so the tables do not grow across the run.
+     */
+    @TearDown(Level.Iteration)
+    public void deleteUsers() {
+        jdbcTemplate.update("delete from user where username_key like ?", USERNAME_PREFIX + "%");
+        jdbcTemplate.update("delete from cart where id >= ?", firstCartId);
+    }
+
+    @Benchmark
+    public void saveUsersWithCarts(RoundTrips roundTrips) {
+        long before = statistics.getPrepareStatementCount();
+        transactionTemplate.execute(status -> {
+            EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory)
+                    .unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (int i = 0; i < users; i++) {
+                Cart cart = cartRepository.save(new Cart());
+                if (firstCartId == 0) {
+                    firstCartId = cart.getId();
+                }
+                User user = new User();
+                user.setUsername(USERNAME_PREFIX + sequence++);
+                user.setPassword("not-a-real-hash");
+                user.setCart(cart);
+                userRepository.save(user);
+            }
+            return null;
+        });
+        roundTrips.statements += statistics.getPrepareStatementCount() - before;
+        roundTrips.rows += users;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart mutations as requests run them: CartRepository's locked line updates against H2, each in a
+ * transaction of its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    // calls between resets: often enough to keep quantities bounded, rarely enough that refilling
+    // the cart is noise next to the calls themselves, unlike a per-invocation setup
+    private static final int RESET_EVERY = 100_000;
+
+    @Param({"1", "1000"})
+    private int quantity;
+
+    @Param({"1", "30"})
+    private int cartLines;
+
+    private CartRepository cartRepository;
+
+    private Map<Item, Integer> fill;
+
+    private Item item;
+
+    private Long cartId;
+
+    private int calls;
+
+    @Setup(Level.Trial)
+    public void createCart() {
+        ConfigurableApplicationContext application = Fixtures.application();
+        cartRepository = application.getBean(CartRepository.class);
+        ItemRepository itemRepository = application.getBean(ItemRepository.class);
+        fill = new HashMap<>();
+        for (int i = 1; i <= cartLines; i++) {
+            Item saved = Fixtures.item(i);
+            saved.setId(null);
+            item = itemRepository.save(saved);
+            fill.put(item, RESET_EVERY * quantity);
+        }
+        cartId = cartRepository.save(new Cart()).getId();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        reset();
+    }
+
+    @Benchmark
+    public void addItem() {
+        if (++calls == RESET_EVERY) {
+            reset();
+        }
+        cartRepository.addItem(cartId, item, quantity);
+    }
+
+    @Benchmark
+    public void removeItem() {
+        if (++calls == RESET_EVERY) {
+            reset();
+        }
+        cartRepository.removeItem(cartId, item, quantity);
+    }
+
+    /**
+     * Empties the cart and fills every line with enough units that removals until the next reset
+     * never empty one.
+     */
+    private void reset() {
+        calls = 0;
+        cartRepository.clear(cartId, cartRepository.findVersionById(cartId));
+        cartRepository.applyChanges(cartId, fill);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+final class Fixtures {
+
+    private static ConfigurableApplicationContext application;
+
+    private Fixtures() {
+    }
+
+    static Item item(long id) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName("Widget " + id);
+        item.setPrice(BigDecimal.valueOf(199 + id % 500, 2));
+        item.setDescription("A benchmark widget");
+        return item;
+    }
+
+    static Cart cart(int distinctItems, int quantityPerItem) {
+        User user = new User();
+        user.setId(1);
+        user.setUsername("benchmark");
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        user.setCart(cart);
+        List<CartLine> lines = new ArrayList<>();
+        long total = 0;
+        for (int i = 1; i <= distinctItems; i++) {
+            CartLine line = new CartLine(cart, item(i));
+            line.setQuantity(quantityPerItem);
+            lines.add(line);
+            total += line.getLineTotalMinor();
+        }
+        cart.setLines(lines);
+        cart.setTotal(cart.getTotal().plus(total));
+        return cart;
+    }
+
+    /**
+     * The application on a random port and an in-memory database of its own, started once per
+     * benchmark JVM and shared by every benchmark that needs the real repositories.
+     */
+    static synchronized ConfigurableApplicationContext application() {
+        if (application == null) {
+            application = new SpringApplicationBuilder(SareetaApplication.class)
+                    .properties("server.port=0", "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                            "logging.file=", "logging.level.com.example.demo=WARN",
+                            "outbox.sink.type=memory", "security.bcrypt.min-strength=4", "security.bcrypt.max-strength=4")
+                    .run();
+        }
+        return application;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.service.PromotionPlan;
+import com.example.demo.service.PromotionRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices carts against a plan with rules for every other item, a catalog-wide percentage and a
+ * few cart thresholds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int cartLines;
+
+    private PromotionPlan plan;
+
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        List<PromotionRule> rules = new ArrayList<>();
+        rules.add(PromotionRule.percentage(null, "5"));
+        for (long id = 1; id <= 1000; id += 2) {
+            switch ((int) (id % 3)) {
+            case 0:
+                rules.add(PromotionRule.percentage(id, "15"));
+                break;
+            case 1:
+                rules.add(PromotionRule.buyXGetY(id, 2, 1));
+                break;
+            default:
+                rules.add(PromotionRule.tiered(id, new PromotionRule.Tier(3, "10"), new PromotionRule.Tier(10, "20")));
+            }
+        }
+        rules.add(PromotionRule.cartPercentage("50.00", "2"));
+        rules.add(PromotionRule.cartPercentage("200.00", "5"));
+        plan = PromotionPlan.compile(rules);
+        cart = Fixtures.cart(cartLines, 3);
+    }
+
+    @Benchmark
+    public Cart price() {
+        plan.apply(cart);
+        return cart;
+    }
+}
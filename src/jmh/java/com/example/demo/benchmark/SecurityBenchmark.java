@@ -0,0 +1,63 @@
+package com.example.demo.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.SecurityConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+
+/**
+ * JWT work done per request by JWTAuthenticationFilter (sign) and
+ * JWTAuthenticationVerficationFilter (verify). {@link #verifyToken()} is the uncached baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityBenchmark {
+
+    private String token;
+
+    private JWTTokenVerifier tokenVerifier;
+
+    @Setup
+    public void setUp() {
+        token = signToken();
+        tokenVerifier = new JWTTokenVerifier(10_000);
+    }
+
+    @Benchmark
+    public String signToken() {
+        return JWT.create()
+                .withSubject("benchmark")
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
+                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
+    }
+
+    @Benchmark
+    public String verifyToken() {
+        return JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build()
+                .verify(token)
+                .getSubject();
+    }
+
+    @Benchmark
+    public String verifyTokenCached() {
+        return tokenVerifier.verify(token).getSubject();
+    }
+}
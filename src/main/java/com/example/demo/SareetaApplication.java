@@ -1,20 +1,45 @@
 package com.example.demo;
 
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import com.example.demo.security.CalibratedBCryptPasswordEncoder;
+import com.example.demo.security.PasswordHashingExecutor;
+import com.example.demo.service.FileOutboxSink;
+import com.example.demo.service.InMemoryOutboxSink;
+import com.example.demo.service.OutboxSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 @EnableJpaRepositories("com.example.demo.model.persistence.repositories")
 @EntityScan("com.example.demo.model.persistence")
 @SpringBootApplication(exclude = {SecurityAutoConfiguration.class})
+@EnableScheduling
 public class SareetaApplication {
 	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder() {
-		return new BCryptPasswordEncoder();
+	public BCryptPasswordEncoder bCryptPasswordEncoder(PasswordHashingExecutor passwordHashingExecutor,
+			@Value("${security.bcrypt.target-millis:250}") long targetMillis,
+			@Value("${security.bcrypt.min-strength:10}") int minStrength,
+			@Value("${security.bcrypt.max-strength:14}") int maxStrength) {
+		return CalibratedBCryptPasswordEncoder.calibrate(targetMillis, minStrength, maxStrength, passwordHashingExecutor);
+	}
+
+	@Bean
+	public OutboxSink outboxSink(ObjectMapper objectMapper,
+			@Value("${outbox.sink.type:file}") String type,
+			@Value("${outbox.sink.path:outbox/events.jsonl}") String path) {
+		if("memory".equals(type)) {
+			return new InMemoryOutboxSink();
+		}
+		return new FileOutboxSink(Paths.get(path), objectMapper);
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,84 @@
+package com.example.demo.controllers;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.demo.security.JWTTokenIssuer;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenRevocationList;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+	public static final Logger log = LogManager.getLogger(AuthController.class);
+
+	@Autowired
+	private JWTTokenIssuer tokenIssuer;
+
+	@Autowired
+	private JWTTokenVerifier tokenVerifier;
+
+	@Autowired
+	private TokenRevocationList revocationList;
+
+	/**
+	 * Exchanges a refresh token for a new access/refresh pair. The presented refresh token is
+	 * revoked, so each one can be used once; of two concurrent refreshes with the same token,
+	 * only the one that revokes it gets a new pair.
+	 */
+	@PostMapping("/refresh")
+	public ResponseEntity<Void> refresh(@RequestHeader(SecurityConstants.REFRESH_HEADER_STRING) String refreshToken,
+			HttpServletResponse response) {
+		JWTTokenVerifier.VerifiedToken verified = verifyRefreshToken(refreshToken);
+		if (verified == null || !revocationList.revoke(verified)) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		tokenIssuer.issue(verified.getSubject(), verified.getUserId(), verified.getCartId(), response);
+		return ResponseEntity.ok().build();
+	}
+
+	/**
+	 * Revokes the access token used for this request and, if presented, the refresh token.
+	 */
+	@PostMapping("/logout")
+	public ResponseEntity<Void> logout(Authentication authentication,
+			@RequestHeader(value = SecurityConstants.REFRESH_HEADER_STRING, required = false) String refreshToken) {
+		if (authentication.getDetails() instanceof JWTTokenVerifier.VerifiedToken) {
+			revocationList.revoke((JWTTokenVerifier.VerifiedToken) authentication.getDetails());
+		}
+		if (refreshToken != null) {
+			JWTTokenVerifier.VerifiedToken verified = verifyRefreshToken(refreshToken);
+			if (verified != null && verified.getSubject().equals(authentication.getName())) {
+				revocationList.revoke(verified);
+			}
+		}
+		return ResponseEntity.noContent().build();
+	}
+
+	private JWTTokenVerifier.VerifiedToken verifyRefreshToken(String refreshToken) {
+		JWTTokenVerifier.VerifiedToken verified;
+		try {
+			verified = tokenVerifier.verify(refreshToken);
+		} catch (JWTVerificationException e) {
+			log.error("Rejected refresh token: {}", e.getMessage());
+			return null;
+		}
+		if (!verified.isRefreshToken() || verified.getSubject() == null || revocationList.isRevoked(verified)) {
+			return null;
+		}
+		return verified;
+	}
+}
@@ -1,79 +1,182 @@
 package com.example.demo.controllers;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
-import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartLineChange;
+import com.example.demo.model.requests.ModifyCartLinesRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartResolver;
+import com.example.demo.service.ItemCatalog;
+import com.example.demo.service.PromotionEngine;
+import com.example.demo.service.PromotionPlan;
 
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
+
+	static final int MAX_LINE_CHANGES = 100;
 	
 	@Autowired
-	private UserRepository userRepository;
+	private CartResolver cartResolver;
 	
 	@Autowired
 	private CartRepository cartRepository;
 	
 	@Autowired
-	private ItemRepository itemRepository;
+	private ItemCatalog itemCatalog;
+	
+	@Autowired
+	private PromotionEngine promotionEngine;
 
 	public static final Logger log = LogManager.getLogger(CartController.class);
 
+	/**
+	 * The cart priced with the current promotions. Its ETag covers the cart's version, which
+	 * every change bumps, and the fingerprint of the promotion plan, so a poll that finds neither
+	 * changed costs one small query and gets an empty 304.
+	 */
+	@GetMapping("/{username}")
+	public ResponseEntity<CartResponse> getCart(@PathVariable String username,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Long cartId = cartResolver.findCartId(username, principal);
+		if(cartId == null) {
+			log.error("Cannot find any user with username: {}", username);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		PromotionPlan plan = promotionEngine.getPlan();
+		CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+		if(ifNoneMatch != null) {
+			Long version = cartRepository.findVersionById(cartId);
+			String etag = version == null ? null : cartTag(cartId, version, plan);
+			if(etag != null && ETags.matches(ifNoneMatch, etag)) {
+				return ETags.notModified(etag, cacheControl);
+			}
+		}
+		Optional<Cart> cart = cartRepository.findWithLinesById(cartId);
+		if(!cart.isPresent()) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		plan.apply(cart.get());
+		long version = cart.get().getVersion() == null ? 0 : cart.get().getVersion();
+		return ResponseEntity.ok()
+				.eTag(cartTag(cartId, version, plan))
+				.cacheControl(cacheControl)
+				.body(CartResponse.from(cart.get()));
+	}
+
 	@PostMapping("/addToCart")
-	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
+	public ResponseEntity<CartResponse> addTocart(@RequestBody ModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Long cartId = cartResolver.findCartId(request.getUsername(), principal);
+		if(cartId == null) {
 			log.error("Cannot find any user with username: {}", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
 		if(!item.isPresent()) {
 			log.error("Cannot find any item with itemId: {}", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
+		try {
+			cartRepository.addItem(cartId, item.get(), request.getQuantity());
+		} catch (ArithmeticException e) {
+			log.error("Adding {} of itemId {} overflows the cart", request.getQuantity(), request.getItemId());
+			return ResponseEntity.badRequest().build();
+		}
 		log.info("Add to cart successfully");
-		return ResponseEntity.ok(cart);
+		return ResponseEntity.of(cartRepository.findWithLinesById(cartId).map(promotionEngine::price).map(CartResponse::from));
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
+	public ResponseEntity<CartResponse> removeFromcart(@RequestBody ModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Long cartId = cartResolver.findCartId(request.getUsername(), principal);
+		if(cartId == null) {
 			log.error("Cannot find any user with username: {}", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
 		if(!item.isPresent()) {
 			log.error("Cannot find any item with itemId: {}", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
+		cartRepository.removeItem(cartId, item.get(), request.getQuantity());
 		log.info("Remove from cart successfully");
-		return ResponseEntity.ok(cart);
+		return ResponseEntity.of(cartRepository.findWithLinesById(cartId).map(promotionEngine::price).map(CartResponse::from));
+	}
+
+	/**
+	 * Applies a list of line changes (positive quantities add, negative ones remove) in one
+	 * transaction. Lines without an item, or changes that take an item's quantity past an int, fail
+	 * the whole request with 400 and unknown items with 404, before anything is changed.
+	 */
+	@PostMapping("/modifyCart")
+	public ResponseEntity<CartResponse> modifyCart(@RequestBody ModifyCartLinesRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		if(request.getLines() == null || request.getLines().size() > MAX_LINE_CHANGES) {
+			return ResponseEntity.badRequest().build();
+		}
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		for(CartLineChange line : request.getLines()) {
+			if(line == null || line.getItemId() == null) {
+				log.error("Cart change without an itemId");
+				return ResponseEntity.badRequest().build();
+			}
+			try {
+				quantities.merge(line.getItemId(), line.getQuantity(), Math::addExact);
+			} catch (ArithmeticException e) {
+				log.error("Cart changes to itemId {} overflow the quantity", line.getItemId());
+				return ResponseEntity.badRequest().build();
+			}
+		}
+		Long cartId = cartResolver.findCartId(request.getUsername(), principal);
+		if(cartId == null) {
+			log.error("Cannot find any user with username: {}", request.getUsername());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		Map<Long, Item> items = itemCatalog.findAllById(quantities.keySet());
+		if(items.size() < quantities.size()) {
+			quantities.keySet().removeAll(items.keySet());
+			log.error("Cannot find any item with itemIds: {}", quantities.keySet());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		Map<Item, Integer> changes = new LinkedHashMap<>();
+		quantities.forEach((itemId, quantity) -> changes.put(items.get(itemId), quantity));
+		try {
+			cartRepository.applyChanges(cartId, changes);
+		} catch (ArithmeticException e) {
+			log.error("Cart changes to itemIds {} overflow the cart", quantities.keySet());
+			return ResponseEntity.badRequest().build();
+		}
+		log.info("Modify cart successfully");
+		return ResponseEntity.of(cartRepository.findWithLinesById(cartId).map(promotionEngine::price).map(CartResponse::from));
+	}
+
+	private static String cartTag(Long cartId, long version, PromotionPlan plan) {
+		return new ETags().add(cartId).add(version).add(plan.getFingerprint()).build();
 	}
-		
 }
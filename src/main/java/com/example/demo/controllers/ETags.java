@@ -0,0 +1,55 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.demo.service.Fnv1a;
+
+/**
+ * Strong entity tags for conditional GETs. A tag is a 64-bit FNV-1a hash over the values a
+ * response is built from (entity ids and versions, or the fields of rows that never change), so
+ * whether a client's copy is current can be decided before any body is built or serialized.
+ */
+final class ETags {
+
+	private long hash = Fnv1a.OFFSET_BASIS;
+
+	ETags add(long value) {
+		hash = Fnv1a.mix(hash, value);
+		return this;
+	}
+
+	ETags add(String value) {
+		hash = Fnv1a.mix(Fnv1a.mix(hash, value.length()), value);
+		return this;
+	}
+
+	String build() {
+		return "\"" + Long.toHexString(hash) + "\"";
+	}
+
+	/**
+	 * Whether an {@code If-None-Match} header names the tag. As the header requires, weak tags
+	 * the client sends compare equal to the strong tag they were derived from.
+	 */
+	static boolean matches(String ifNoneMatch, String etag) {
+		if(ifNoneMatch == null) {
+			return false;
+		}
+		for(String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if(candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if(candidate.equals("*") || candidate.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static <T> ResponseEntity<T> notModified(String etag, CacheControl cacheControl) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+	}
+}
@@ -1,40 +1,154 @@
 package com.example.demo.controllers;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.service.ItemCatalog;
+import com.example.demo.service.ItemJsonCache;
+import com.example.demo.service.ItemSearchIndex;
 
+/**
+ * Item endpoints answer with the cached JSON of each item from {@link ItemJsonCache} rather than
+ * serializing the entities on every call. Catalog reads carry an ETag over the ids and versions
+ * of the items they return and may be cached for {@code catalog.http.max-age-seconds}; a request
+ * whose {@code If-None-Match} still matches gets an empty 304.
+ */
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
 
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
 	@Autowired
 	private ItemRepository itemRepository;
+
+	@Autowired
+	private ItemCatalog itemCatalog;
+
+	@Autowired
+	private ItemSearchIndex itemSearchIndex;
+
+	@Autowired
+	private ItemJsonCache itemJsonCache;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${catalog.page.default-size:100}")
+	private int defaultPageSize;
+
+	@Value("${catalog.page.max-size:1000}")
+	private int maxPageSize;
+
+	@Value("${catalog.http.max-age-seconds:60}")
+	private long maxAgeSeconds;
 	
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<byte[]> getItems(@RequestParam(required = false) Long after,
+			@RequestParam(required = false) Integer size,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		int pageSize = pageSize(size);
+		List<Item> items = itemRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after,
+				PageRequest.of(0, pageSize));
+		String nextCursor = items.size() == pageSize ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+		return catalogJson(items, nextCursor, ifNoneMatch);
+	}
+
+	@GetMapping("/stream")
+	public ResponseEntity<StreamingResponseBody> streamItems(@RequestParam(required = false) Long after) {
+		StreamingResponseBody body = out -> {
+			long cursor = after == null ? 0L : after;
+			List<Item> page;
+			do {
+				page = itemRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, maxPageSize));
+				for (Item item : page) {
+					out.write(itemJsonCache.toJson(item));
+					out.write('\n');
+					cursor = item.getId();
+				}
+				out.flush();
+				// Drop the page from the request-scoped persistence context so memory stays flat.
+				entityManager.clear();
+			} while (page.size() == maxPageSize);
+		};
+		return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+	}
+	
+	@GetMapping("/search")
+	public ResponseEntity<byte[]> searchItems(@RequestParam("q") String query,
+			@RequestParam(defaultValue = "0") int offset,
+			@RequestParam(required = false) Integer limit,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		return catalogJson(itemSearchIndex.search(query, offset, pageSize(limit)), null, ifNoneMatch);
 	}
 	
 	@GetMapping("/{id}")
-	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		return ResponseEntity.of(itemRepository.findById(id));
+	public ResponseEntity<byte[]> getItemById(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		return itemCatalog.findById(id)
+				.map(item -> catalogJson(new ETags().add(item.getId()).add(item.getVersion()).build(), null,
+						ifNoneMatch, () -> itemJsonCache.toJson(item)))
+				.orElseGet(() -> ResponseEntity.notFound().build());
 	}
 	
 	@GetMapping("/name/{name}")
-	public ResponseEntity<List<Item>> getItemsByName(@PathVariable String name) {
-		List<Item> items = itemRepository.findByName(name);
+	public ResponseEntity<byte[]> getItemsByName(@PathVariable String name,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		List<Item> items = itemCatalog.findByName(name);
 		return items == null || items.isEmpty() ? ResponseEntity.notFound().build()
-				: ResponseEntity.ok(items);
+				: catalogJson(items, null, ifNoneMatch);
 			
 	}
+
+	private ResponseEntity<byte[]> catalogJson(List<Item> items, String nextCursor, String ifNoneMatch) {
+		ETags etag = new ETags();
+		for (Item item : items) {
+			etag.add(item.getId()).add(item.getVersion());
+		}
+		return catalogJson(etag.build(), nextCursor, ifNoneMatch, () -> itemJsonCache.toJsonArray(items));
+	}
+
+	private ResponseEntity<byte[]> catalogJson(String etag, String nextCursor, String ifNoneMatch,
+			Supplier<byte[]> body) {
+		boolean notModified = ETags.matches(ifNoneMatch, etag);
+		ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+				.eTag(etag)
+				.cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS));
+		if (nextCursor != null) {
+			response.header(NEXT_CURSOR_HEADER, nextCursor);
+		}
+		return notModified ? response.build() : response.contentType(MediaType.APPLICATION_JSON).body(body.get());
+	}
+
+	private int pageSize(Integer requested) {
+		if (requested == null || requested <= 0) {
+			return defaultPageSize;
+		}
+		return Math.min(requested, maxPageSize);
+	}
 	
 }
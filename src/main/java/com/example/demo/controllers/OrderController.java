@@ -1,58 +1,226 @@
 package com.example.demo.controllers;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.model.responses.OrderTicket;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartResolver;
+import com.example.demo.service.IdempotencyKeyStore;
+import com.example.demo.service.InsufficientStockException;
+import com.example.demo.service.OrderPipeline;
+import com.example.demo.service.OrderQueueFullException;
+import com.example.demo.service.OrderService;
 
 @RestController
 @RequestMapping("/api/order")
 public class OrderController {
-	
+
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+	private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
 	
 	@Autowired
 	private UserRepository userRepository;
+
+	@Autowired
+	private CartResolver cartResolver;
 	
 	@Autowired
 	private OrderRepository orderRepository;
 
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderPipeline orderPipeline;
+
+	@Autowired
+	private IdempotencyKeyStore idempotencyKeys;
+
+	@Value("${orders.history.default-size:20}")
+	private int defaultPageSize;
+
+	@Value("${orders.history.max-size:100}")
+	private int maxPageSize;
+
 	public static final Logger log = LogManager.getLogger(OrderController.class);
 	
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
+	public ResponseEntity<OrderResponse> submit(@PathVariable String username,
+			@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<OrderResponse> order;
+		try {
+			if(idempotencyKey == null) {
+				order = placeOrder(username, principal);
+			} else if(IdempotencyKeyStore.isValidKey(idempotencyKey)) {
+				order = idempotencyKeys.execute(User.normalizeUsername(username), idempotencyKey,
+						() -> placeOrder(username, principal));
+			} else {
+				return ResponseEntity.badRequest().build();
+			}
+		} catch (OptimisticLockingFailureException e) {
+			log.error("Create order fail, cart of {} changed during submission", username);
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		} catch (InsufficientStockException e) {
+			log.error("Create order fail, not enough stock of item {}", e.getItemId());
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+		if(!order.isPresent()) {
 			log.error("Create order fail, no username exists with {}", username);
 			return ResponseEntity.notFound().build();
 		}
-		UserOrder order = UserOrder.createFromCart(user.getCart());
-		orderRepository.save(order);
 		log.info("Order successfully");
-		return ResponseEntity.ok(order);
+		return ResponseEntity.ok(order.get());
 	}
-	
+
+	/**
+	 * Queues the order for the asynchronous pipeline and answers 202 with a ticket to poll at
+	 * {@code /api/order/status/{username}/{ticketId}}. The order is taken from the cart as it is
+	 * when the pipeline writes it.
+	 */
+	@PostMapping("/submit/{username}/async")
+	public ResponseEntity<OrderTicket> submitAsync(@PathVariable String username,
+			@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<OrderTicket> ticket;
+		try {
+			if(idempotencyKey == null) {
+				ticket = queueOrder(username, principal);
+			} else if(IdempotencyKeyStore.isValidKey(idempotencyKey)) {
+				ticket = idempotencyKeys.execute(User.normalizeUsername(username) + "/async", idempotencyKey,
+						() -> queueOrder(username, principal));
+			} else {
+				return ResponseEntity.badRequest().build();
+			}
+		} catch (OrderQueueFullException e) {
+			log.error("Create order fail, order queue is full");
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+		}
+		if(!ticket.isPresent()) {
+			log.error("Create order fail, no username exists with {}", username);
+			return ResponseEntity.notFound().build();
+		}
+		log.info("Order queued successfully");
+		return ResponseEntity.accepted()
+				.header(HttpHeaders.LOCATION, "/api/order/status/" + username + "/" + ticket.get().getId())
+				.body(ticket.get());
+	}
+
+	@GetMapping("/status/{username}/{ticketId}")
+	public ResponseEntity<OrderTicket> getOrderStatus(@PathVariable String username, @PathVariable String ticketId) {
+		OrderTicket ticket = orderPipeline.status(ticketId, username);
+		return ticket == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(ticket);
+	}
+
+	private Optional<OrderResponse> placeOrder(String username, AuthenticatedUser principal) {
+		Long cartId = cartResolver.findCartId(username, principal);
+		return cartId == null ? Optional.empty() : orderService.submit(cartId).map(OrderResponse::from);
+	}
+
+	private Optional<OrderTicket> queueOrder(String username, AuthenticatedUser principal) {
+		Long cartId = cartResolver.findCartId(username, principal);
+		return cartId == null ? Optional.empty() : Optional.of(orderPipeline.enqueue(cartId, username));
+	}
+
 	@GetMapping("/history/{username}")
-	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
+	public ResponseEntity<List<OrderSummary>> getOrdersForUser(@PathVariable String username,
+			@RequestParam(required = false) String before,
+			@RequestParam(required = false) Instant from,
+			@RequestParam(required = false) Instant to,
+			@RequestParam(required = false) Integer size,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		User user = findUser(username, principal);
 		if(user == null) {
 			log.error("Get order fail, there is no username with {}", username);
 			return ResponseEntity.notFound().build();
 		}
+		Instant beforeCreatedAt = to == null ? END_OF_TIME : to;
+		long beforeId = Long.MIN_VALUE;
+		if(before != null) {
+			int separator = before.indexOf('_');
+			if(separator < 0) {
+				return ResponseEntity.badRequest().build();
+			}
+			try {
+				beforeCreatedAt = Instant.ofEpochMilli(Long.parseLong(before.substring(0, separator)));
+				beforeId = Long.parseLong(before.substring(separator + 1));
+			} catch (NumberFormatException e) {
+				log.error("Get order fail, malformed history cursor {}", before);
+				return ResponseEntity.badRequest().build();
+			}
+		}
+		int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+		List<OrderSummary> orders = orderRepository.findSummaries(user, from == null ? Instant.EPOCH : from,
+				beforeCreatedAt, beforeId, PageRequest.of(0, pageSize));
+		// orders never change once written, so their ids identify the page and its cursor
+		ETags tag = new ETags();
+		for(OrderSummary order : orders) {
+			tag.add(order.getId());
+		}
+		String etag = tag.build();
+		boolean notModified = ETags.matches(ifNoneMatch, etag);
+		ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+				.eTag(etag)
+				.cacheControl(CacheControl.noCache().cachePrivate());
+		if(orders.size() == pageSize) {
+			OrderSummary last = orders.get(orders.size() - 1);
+			response.header(NEXT_CURSOR_HEADER, last.getCreatedAt().toEpochMilli() + "_" + last.getId());
+		}
 		log.info("Get history order successfully");
-		return ResponseEntity.ok(orderRepository.findByUser(user));
+		return notModified ? response.build() : response.body(orders);
+	}
+
+	@GetMapping("/history/{username}/{orderId}")
+	public ResponseEntity<OrderResponse> getOrderForUser(@PathVariable String username, @PathVariable Long orderId,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		User user = findUser(username, principal);
+		if(user == null) {
+			log.error("Get order fail, there is no username with {}", username);
+			return ResponseEntity.notFound().build();
+		}
+		UserOrder order = orderRepository.findByIdAndUser(orderId, user);
+		return order == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(OrderResponse.from(order));
+	}
+
+	/**
+	 * Returns an unloaded reference when the caller asks for their own orders, since the queries
+	 * only need the user's id; otherwise looks the username up.
+	 */
+	private User findUser(String username, AuthenticatedUser principal) {
+		if(principal != null && principal.getUserId() != null && principal.is(username)) {
+			return userRepository.getOne(principal.getUserId());
+		}
+		return userRepository.findByUsername(username);
 	}
 }
@@ -3,12 +3,15 @@ package com.example.demo.controllers;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -17,6 +20,7 @@ import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.UserCache;
 
 @RestController
 @RequestMapping("/api/user")
@@ -31,17 +35,36 @@ public class UserController {
     @Autowired
     private BCryptPasswordEncoder bCryptPasswordEncoder;
 
+    @Autowired
+    private UserCache userCache;
+
     public static final Logger log = LogManager.getLogger(UserController.class);
 
     @GetMapping("/id/{id}")
-    public ResponseEntity<User> findById(@PathVariable Long id) {
-        return ResponseEntity.of(userRepository.findById(id));
+    public ResponseEntity<User> findById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return userRepository.findById(id)
+                .map(user -> conditional(user, ifNoneMatch))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{username}")
-    public ResponseEntity<User> findByUserName(@PathVariable String username) {
+    public ResponseEntity<User> findByUserName(@PathVariable String username,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         User user = userRepository.findByUsername(username);
-        return user == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(user);
+        return user == null ? ResponseEntity.notFound().build() : conditional(user, ifNoneMatch);
+    }
+
+    /**
+     * A user's id and username never change, so they make the whole tag.
+     */
+    private static ResponseEntity<User> conditional(User user, String ifNoneMatch) {
+        String etag = new ETags().add(user.getId()).add(user.getUsername()).build();
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag, cacheControl);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(user);
     }
 
     @PostMapping("/create")
@@ -60,6 +83,7 @@ public class UserController {
         user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
 
         userRepository.save(user);
+        userCache.invalidate(user.getUsername());
         log.info("Create new User successfully");
         return ResponseEntity.ok(user);
     }
@@ -1,21 +1,28 @@
 package com.example.demo.model.persistence;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
+import javax.persistence.MapKey;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.OrderBy;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,32 +30,65 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany
-	@JsonProperty
-	@Column
-    private List<Item> items;
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+	@MapKey(name = "item")
+	@OrderBy("id")
+	@JsonIgnore
+	private Map<Item, CartLine> lines = new LinkedHashMap<>();
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
     private User user;
+
+	@Version
+	@JsonIgnore
+	private Long version;
 	
-	@Column
+	@Embedded
+	@AttributeOverrides({
+		@AttributeOverride(name = "minorUnits", column = @Column(name = "total_minor")),
+		@AttributeOverride(name = "currency", column = @Column(name = "currency", length = 3))
+	})
 	@JsonProperty
-	private BigDecimal total;
+	private Money total;
+
+	// set by PromotionPlan when the cart is priced; line and cart discounts together
+	@Transient
+	@JsonIgnore
+	private long discountMinor;
 	
-	public BigDecimal getTotal() {
-		return total;
+	public Money getTotal() {
+		return total == null ? Money.zero() : total;
 	}
 
-	public void setTotal(BigDecimal total) {
+	public void setTotal(Money total) {
 		this.total = total;
 	}
 
+	public long getDiscountMinor() {
+		return discountMinor;
+	}
+
+	public void setDiscountMinor(long discountMinor) {
+		this.discountMinor = discountMinor;
+	}
+
+	@JsonProperty
+	public Money getDiscount() {
+		return new Money(discountMinor, getTotal().getCurrency());
+	}
+
+	@JsonProperty
+	public Money getPayable() {
+		return getTotal().minus(discountMinor);
+	}
+
 	public User getUser() {
 		return user;
 	}
@@ -57,6 +97,14 @@ public class Cart {
 		this.user = user;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	public Long getId() {
 		return id;
 	}
@@ -65,33 +113,37 @@ public class Cart {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	@JsonProperty("lines")
+	public Collection<CartLine> getLines() {
+		return lines.values();
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public CartLine getLine(Item item) {
+		return lines.get(item);
 	}
-	
-	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
-		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+
+	public long sumLinesMinor() {
+		long sum = 0;
+		for(CartLine line : lines.values()) {
+			sum = Math.addExact(sum, line.getLineTotalMinor());
 		}
-		total = total.add(item.getPrice());
+		return sum;
 	}
-	
-	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
-		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+
+	/**
+	 * Whether the incrementally kept total still equals the sum of the lines.
+	 */
+	@JsonIgnore
+	public boolean isTotalConsistent() {
+		return getTotal().getMinorUnits() == sumLinesMinor();
+	}
+
+	public void setLines(Collection<CartLine> lines) {
+		Map<Item, CartLine> byItem = new LinkedHashMap<>();
+		for(CartLine line : lines) {
+			byItem.put(line.getItem(), line);
 		}
-		total = total.subtract(item.getPrice());
+		this.lines.clear();
+		this.lines.putAll(byItem);
 	}
 }
@@ -0,0 +1,123 @@
+package com.example.demo.model.persistence;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@Entity
+@Table(name = "cart_line", uniqueConstraints = @UniqueConstraint(columnNames = {"cart_id", "item_id"}))
+public class CartLine {
+
+	@Id
+	// lines are inserted by CartRepositoryImpl, one sequence value each, so the sequence steps by 1
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_line_seq")
+	@SequenceGenerator(name = "cart_line_seq", sequenceName = "cart_line_seq", allocationSize = 1)
+	@JsonIgnore
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "cart_id", nullable = false)
+	@JsonIgnore
+	private Cart cart;
+
+	@ManyToOne
+	@JoinColumn(name = "item_id", nullable = false)
+	@JsonProperty
+	private Item item;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(name = "unit_price_minor", nullable = false)
+	@JsonIgnore
+	private long unitPriceMinor;
+
+	@Transient
+	@JsonIgnore
+	private long discountMinor;
+
+	public CartLine() {
+	}
+
+	public CartLine(Cart cart, Item item) {
+		this.cart = cart;
+		this.item = item;
+		this.unitPriceMinor = Money.toMinorUnits(item.getPrice(), Money.DEFAULT_CURRENCY);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public void setCart(Cart cart) {
+		this.cart = cart;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	public long getUnitPriceMinor() {
+		return unitPriceMinor;
+	}
+
+	public void setUnitPriceMinor(long unitPriceMinor) {
+		this.unitPriceMinor = unitPriceMinor;
+	}
+
+	public long getDiscountMinor() {
+		return discountMinor;
+	}
+
+	public void setDiscountMinor(long discountMinor) {
+		this.discountMinor = discountMinor;
+	}
+
+	@JsonProperty
+	public Money getDiscount() {
+		return new Money(discountMinor, Money.DEFAULT_CURRENCY);
+	}
+
+	@JsonProperty
+	public Money getUnitPrice() {
+		return new Money(unitPriceMinor, Money.DEFAULT_CURRENCY);
+	}
+
+	@JsonIgnore
+	public long getLineTotalMinor() {
+		return Math.multiplyExact(unitPriceMinor, (long) quantity);
+	}
+}
@@ -7,19 +7,26 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "item")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "item", indexes = @Index(name = "idx_item_name", columnList = "name"))
 public class Item {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+	// ids below 51 are left to the seed rows in data.sql, which keep their original ids 1 and 2
+	@SequenceGenerator(name = "item_seq", sequenceName = "item_seq", initialValue = 51, allocationSize = 50)
 	@JsonProperty
 	private Long id;
 	
@@ -34,6 +41,11 @@ public class Item {
 	@Column(nullable = false)
 	@JsonProperty
 	private String description;
+
+	@Version
+	@Column(nullable = false)
+	@JsonIgnore
+	private long version;
 	
 	@Override
 	public int hashCode() {
@@ -91,6 +103,14 @@ public class Item {
 	public void setDescription(String description) {
 		this.description = description;
 	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
 	
 	
 	
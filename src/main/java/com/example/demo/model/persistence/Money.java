@@ -0,0 +1,97 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Fixed-point amount stored as a count of the currency's minor units (cents for USD),
+ * so cart and order arithmetic stays in {@code long} instead of allocating BigDecimals.
+ */
+@Embeddable
+public class Money {
+
+	public static final String DEFAULT_CURRENCY = "USD";
+
+	@Column(name = "minor_units", nullable = false)
+	private long minorUnits;
+
+	@Column(name = "currency", length = 3, nullable = false)
+	private String currency;
+
+	protected Money() {
+	}
+
+	public Money(long minorUnits, String currency) {
+		this.minorUnits = minorUnits;
+		this.currency = currency;
+	}
+
+	public static Money zero() {
+		return new Money(0, DEFAULT_CURRENCY);
+	}
+
+	public static Money of(BigDecimal amount) {
+		return new Money(toMinorUnits(amount, DEFAULT_CURRENCY), DEFAULT_CURRENCY);
+	}
+
+	public static long toMinorUnits(BigDecimal amount, String currency) {
+		int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+		return amount.setScale(digits, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+	}
+
+	@JsonIgnore
+	public long getMinorUnits() {
+		return minorUnits;
+	}
+
+	@JsonProperty
+	public String getCurrency() {
+		return currency;
+	}
+
+	@JsonProperty("amount")
+	public BigDecimal toBigDecimal() {
+		return BigDecimal.valueOf(minorUnits, Currency.getInstance(currency).getDefaultFractionDigits());
+	}
+
+	public Money plus(long minorUnits) {
+		return minorUnits == 0 ? this : new Money(Math.addExact(this.minorUnits, minorUnits), currency);
+	}
+
+	public Money minus(long minorUnits) {
+		return plus(Math.negateExact(minorUnits));
+	}
+
+	@JsonIgnore
+	public boolean isZero() {
+		return minorUnits == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(minorUnits) + (currency == null ? 0 : currency.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		Money other = (Money) obj;
+		return minorUnits == other.minorUnits
+				&& (currency == null ? other.currency == null : currency.equals(other.currency));
+	}
+
+	@Override
+	public String toString() {
+		return toBigDecimal().toPlainString() + " " + currency;
+	}
+}
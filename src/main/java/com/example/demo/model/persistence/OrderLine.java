@@ -0,0 +1,173 @@
+package com.example.demo.model.persistence;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Append-only snapshot of one cart line at submission time. Rows are written with JDBC batch
+ * inserts by {@code OrderRepository.insertLines} and never reference the live {@link Item} row,
+ * so later catalog changes do not rewrite past orders.
+ */
+@Entity
+@Immutable
+@IdClass(OrderLine.Key.class)
+@Table(name = "order_line")
+public class OrderLine {
+
+	@Id
+	@Column(name = "order_id")
+	@JsonIgnore
+	private Long orderId;
+
+	@Id
+	@Column(name = "line_number")
+	@JsonIgnore
+	private int lineNumber;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "order_id", insertable = false, updatable = false)
+	@JsonIgnore
+	private UserOrder order;
+
+	@Column(name = "item_id", nullable = false)
+	@JsonProperty
+	private Long itemId;
+
+	@Column(name = "item_name", nullable = false)
+	@JsonProperty("name")
+	private String itemName;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(name = "unit_price_minor", nullable = false)
+	@JsonIgnore
+	private long unitPriceMinor;
+
+	@Column(name = "discount_minor", nullable = false)
+	@JsonIgnore
+	private long discountMinor;
+
+	public OrderLine() {
+	}
+
+	public OrderLine(CartLine line, int lineNumber) {
+		this.lineNumber = lineNumber;
+		this.itemId = line.getItem().getId();
+		this.itemName = line.getItem().getName();
+		this.quantity = line.getQuantity();
+		this.unitPriceMinor = line.getUnitPriceMinor();
+		this.discountMinor = line.getDiscountMinor();
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	public void setOrderId(Long orderId) {
+		this.orderId = orderId;
+	}
+
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	public void setLineNumber(int lineNumber) {
+		this.lineNumber = lineNumber;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public void setItemId(Long itemId) {
+		this.itemId = itemId;
+	}
+
+	public String getItemName() {
+		return itemName;
+	}
+
+	public void setItemName(String itemName) {
+		this.itemName = itemName;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	public long getUnitPriceMinor() {
+		return unitPriceMinor;
+	}
+
+	public void setUnitPriceMinor(long unitPriceMinor) {
+		this.unitPriceMinor = unitPriceMinor;
+	}
+
+	public long getDiscountMinor() {
+		return discountMinor;
+	}
+
+	public void setDiscountMinor(long discountMinor) {
+		this.discountMinor = discountMinor;
+	}
+
+	@JsonProperty
+	public Money getUnitPrice() {
+		return new Money(unitPriceMinor, Money.DEFAULT_CURRENCY);
+	}
+
+	@JsonProperty
+	public Money getDiscount() {
+		return new Money(discountMinor, Money.DEFAULT_CURRENCY);
+	}
+
+	public static class Key implements Serializable {
+
+		private Long orderId;
+
+		private int lineNumber;
+
+		public Key() {
+		}
+
+		public Key(Long orderId, int lineNumber) {
+			this.orderId = orderId;
+			this.lineNumber = lineNumber;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(orderId, lineNumber);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Key other = (Key) obj;
+			return lineNumber == other.lineNumber && Objects.equals(orderId, other.orderId);
+		}
+	}
+}
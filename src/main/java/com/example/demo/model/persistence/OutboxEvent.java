@@ -0,0 +1,83 @@
+package com.example.demo.model.persistence;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * An event written in the same transaction as the change it describes and deleted once a sink
+ * has accepted it. Delivery is at least once: consumers should de-duplicate on {@link #getId()}.
+ */
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+	@SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+	@JsonProperty
+	private Long id;
+
+	@Column(name = "event_type", nullable = false, length = 64)
+	@JsonProperty
+	private String type;
+
+	@Column(name = "aggregate_id", nullable = false)
+	@JsonProperty
+	private Long aggregateId;
+
+	@Lob
+	@Column(nullable = false)
+	@JsonProperty
+	@JsonRawValue
+	private String payload;
+
+	@Column(name = "created_at", nullable = false)
+	@JsonProperty
+	private Instant createdAt;
+
+	public OutboxEvent() {
+	}
+
+	public OutboxEvent(String type, Long aggregateId, String payload) {
+		this.type = type;
+		this.aggregateId = aggregateId;
+		this.payload = payload;
+		this.createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public Long getAggregateId() {
+		return aggregateId;
+	}
+
+	public String getPayload() {
+		return payload;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+}
@@ -6,20 +6,27 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import java.util.Locale;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 
 @Entity
-@Table(name = "user")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "user", indexes = @Index(name = "idx_user_username_key", columnList = "username_key", unique = true))
 public class User {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+	@SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
 	@JsonProperty
 	private long id;
 	
@@ -27,6 +34,10 @@ public class User {
 	@JsonProperty
 	private String username;
 
+	@Column(name = "username_key", nullable = false)
+	@JsonIgnore
+	private String usernameKey;
+
 	@Column(nullable = false)
 	@JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
 	private String password;
@@ -58,6 +69,18 @@ public class User {
 
 	public void setUsername(String username) {
 		this.username = username;
+		this.usernameKey = normalizeUsername(username);
+	}
+
+	public String getUsernameKey() {
+		return usernameKey;
+	}
+
+	/**
+	 * Lookup key for a username: trimmed and lower-cased, so usernames are unique and found case-insensitively.
+	 */
+	public static String normalizeUsername(String username) {
+		return username == null ? null : username.trim().toLowerCase(Locale.ROOT);
 	}
 
 	public String getPassword() {
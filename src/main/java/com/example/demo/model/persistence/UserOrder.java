@@ -1,46 +1,70 @@
 package com.example.demo.model.persistence;
 
-import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import javax.persistence.CascadeType;
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
 import javax.persistence.Column;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "user_order")
+@Table(name = "user_order", indexes = @Index(name = "idx_user_order_user_created", columnList = "user_id, created_at"))
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	@OneToMany(mappedBy = "order")
+	@OrderBy("lineNumber")
 	@JsonProperty
-	@Column
-    private List<Item> items;
+    private List<OrderLine> lines;
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
 	@JsonProperty
     private User user;
 	
+	@Embedded
+	@AttributeOverrides({
+		@AttributeOverride(name = "minorUnits", column = @Column(name = "total_minor")),
+		@AttributeOverride(name = "currency", column = @Column(name = "currency", length = 3))
+	})
 	@JsonProperty
-	@Column
-	private BigDecimal total;
+	private Money total;
+
+	@Column(name = "discount_minor", nullable = false)
+	@JsonIgnore
+	private long discountMinor;
+
+	@Column(name = "line_count", nullable = false)
+	@JsonProperty
+	private int lineCount;
+
+	@Column(name = "created_at", nullable = false)
+	@JsonProperty
+	private Instant createdAt;
 
 	public Long getId() {
 		return id;
@@ -50,12 +74,12 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<OrderLine> getLines() {
+		return lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
 	}
 
 	public User getUser() {
@@ -66,19 +90,71 @@ public class UserOrder {
 		this.user = user;
 	}
 	
-	public BigDecimal getTotal() {
+	public Money getTotal() {
 		return total;
 	}
 
-	public void setTotal(BigDecimal total) {
+	public void setTotal(Money total) {
 		this.total = total;
 	}
 
+	public long getDiscountMinor() {
+		return discountMinor;
+	}
+
+	public void setDiscountMinor(long discountMinor) {
+		this.discountMinor = discountMinor;
+	}
+
+	@JsonProperty
+	public Money getDiscount() {
+		return new Money(discountMinor, total == null ? Money.DEFAULT_CURRENCY : total.getCurrency());
+	}
+
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	public void setLineCount(int lineCount) {
+		this.lineCount = lineCount;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@PrePersist
+	void onCreate() {
+		if(createdAt == null) {
+			createdAt = now();
+		}
+	}
+
+	// Millisecond precision keeps (created_at, id) history cursors exact across databases.
+	private static Instant now() {
+		return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+	}
+
+	/**
+	 * Snapshots the cart as priced: the order total is what the cart says is payable, so a cart
+	 * that has not been through the promotion engine is ordered at full price.
+	 */
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
-		order.setTotal(cart.getTotal());
+		List<OrderLine> lines = new ArrayList<>(cart.getLines().size());
+		for(CartLine line : cart.getLines()) {
+			lines.add(new OrderLine(line, lines.size() + 1));
+		}
+		order.setLines(lines);
+		order.setLineCount(order.getLines().size());
+		order.setTotal(cart.getPayable());
+		order.setDiscountMinor(cart.getDiscountMinor());
 		order.setUser(cart.getUser());
+		order.setCreatedAt(now());
 		return order;
 	}
 	
@@ -1,6 +1,11 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
@@ -8,6 +13,21 @@ import com.example.demo.model.persistence.User;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface CartRepository extends JpaRepository<Cart, Long> {
+public interface CartRepository extends JpaRepository<Cart, Long>, CartRepositoryCustom {
 	Cart findByUser(User user);
+
+	/**
+	 * Loads the cart with its lines and their items in one query, ready to be priced.
+	 */
+	@EntityGraph(attributePaths = {"lines", "lines.item"})
+	Optional<Cart> findWithLinesById(Long id);
+
+	@Query("select coalesce(c.version, 0) from Cart c where c.id = :cartId")
+	Long findVersionById(@Param("cartId") Long cartId);
+
+	/**
+	 * The cart's lines totalled in the database, to reconcile the incrementally kept total against.
+	 */
+	@Query("select coalesce(sum(l.unitPriceMinor * l.quantity), 0) from CartLine l where l.cart.id = :cartId")
+	long sumLineTotals(@Param("cartId") Long cartId);
 }
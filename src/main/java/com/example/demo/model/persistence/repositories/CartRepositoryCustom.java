@@ -0,0 +1,35 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.util.Map;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * Cart mutations done as single-row SQL updates, so concurrent requests for one cart cannot
+ * overwrite each other's changes the way load-modify-save does.
+ */
+public interface CartRepositoryCustom {
+	void addItem(Long cartId, Item item, int quantity);
+
+	void removeItem(Long cartId, Item item, int quantity);
+
+	/**
+	 * Applies several line changes in one transaction, adding for positive quantities and
+	 * removing for negative ones, and adjusts the total once for all of them.
+	 */
+	void applyChanges(Long cartId, Map<Item, Integer> changes);
+
+	/**
+	 * Locks the cart row until the current transaction ends and returns its version, or
+	 * {@code null} if there is no such cart. Reads made after this in the same transaction see
+	 * the cart as no other writer can change it.
+	 */
+	Long lock(Long cartId);
+
+	/**
+	 * Empties the cart, provided it is still at {@code expectedVersion}; otherwise throws
+	 * {@link org.springframework.dao.OptimisticLockingFailureException} so the caller's transaction
+	 * rolls back instead of discarding a change it never saw.
+	 */
+	void clear(Long cartId, long expectedVersion);
+}
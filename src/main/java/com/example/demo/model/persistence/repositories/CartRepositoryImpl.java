@@ -0,0 +1,218 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
+
+/**
+ * Cart writes are pessimistic: a mutation first locks the cart row, then reads the cart version and
+ * the lines it touches in one statement, and only then moves the total and writes the lines.
+ * Writers of one cart therefore queue on that row in a single lock order instead of deadlocking,
+ * and a submission that holds the row sees lines no other transaction is halfway through
+ * changing. (A compare-and-set retry loop would still wait on the row lock of the writer ahead
+ * of it, and a hot cart then times H2's waiters out.) The total update still checks the version
+ * read under the lock, so a writer that bypasses the lock cannot be silently overwritten.
+ */
+public class CartRepositoryImpl implements CartRepositoryCustom {
+
+	private static final String LOCK_CART = "select coalesce(version, 0) from cart where id = ? for update";
+
+	// read after the lock is held, by a statement of its own: H2 returns a locking select's rows as
+	// they were before it waited
+	private static final String READ_LINE = "select coalesce(c.version, 0), l.item_id, l.quantity, l.unit_price_minor"
+			+ " from cart c left join cart_line l on l.cart_id = c.id and l.item_id = ? where c.id = ?";
+
+	private static final String READ_LINES = "select coalesce(c.version, 0), l.item_id, l.quantity, l.unit_price_minor"
+			+ " from cart c left join cart_line l on l.cart_id = c.id where c.id = ?";
+
+	private static final String ADJUST_TOTAL = "update cart set total_minor = coalesce(total_minor, 0) + ?,"
+			+ " currency = coalesce(currency, ?), version = coalesce(version, 0) + 1"
+			+ " where id = ? and coalesce(version, 0) = ?";
+
+	private static final String INCREMENT_LINE = "update cart_line set quantity = quantity + ?"
+			+ " where cart_id = ? and item_id = ?";
+
+	private static final String INSERT_LINE = "insert into cart_line (id, cart_id, item_id, quantity, unit_price_minor)"
+			+ " values (next value for cart_line_seq, ?, ?, ?, ?)";
+
+	private static final String DECREMENT_LINE = "update cart_line set quantity = quantity - ?"
+			+ " where cart_id = ? and item_id = ?";
+
+	private static final String DELETE_LINE = "delete from cart_line where cart_id = ? and item_id = ?";
+
+	private static final String DELETE_LINES = "delete from cart_line where cart_id = ?";
+
+	private static final String RESET_TOTAL = "update cart set total_minor = 0, currency = coalesce(currency, ?),"
+			+ " version = coalesce(version, 0) + 1 where id = ?";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Increments the line in place, inserting it at the item's current price if the cart has none.
+	 */
+	@Override
+	@Transactional
+	public void addItem(Long cartId, Item item, int quantity) {
+		if(quantity <= 0) {
+			return;
+		}
+		Map<Item, Integer> changes = new HashMap<>();
+		changes.put(item, quantity);
+		apply(cartId, changes, READ_LINE, item.getId(), cartId);
+	}
+
+	/**
+	 * Removes at most the quantity the line holds, dropping the line when it reaches zero, and
+	 * takes exactly that amount off the total.
+	 */
+	@Override
+	@Transactional
+	public void removeItem(Long cartId, Item item, int quantity) {
+		if(quantity <= 0) {
+			return;
+		}
+		Map<Item, Integer> changes = new HashMap<>();
+		changes.put(item, -quantity);
+		apply(cartId, changes, READ_LINE, item.getId(), cartId);
+	}
+
+	@Override
+	@Transactional
+	public void applyChanges(Long cartId, Map<Item, Integer> changes) {
+		apply(cartId, changes, READ_LINES, cartId);
+	}
+
+	@Override
+	@Transactional
+	public Long lock(Long cartId) {
+		List<Long> version = jdbcTemplate.queryForList(LOCK_CART, Long.class, cartId);
+		return version.isEmpty() ? null : version.get(0);
+	}
+
+	@Override
+	@Transactional
+	public void clear(Long cartId, long expectedVersion) {
+		Long version = lock(cartId);
+		if(version == null || version != expectedVersion) {
+			throw new OptimisticLockingFailureException("Cart " + cartId + " changed before it was cleared");
+		}
+		jdbcTemplate.update(DELETE_LINES, cartId);
+		jdbcTemplate.update(RESET_TOTAL, Money.DEFAULT_CURRENCY, cartId);
+	}
+
+	private void apply(Long cartId, Map<Item, Integer> changes, String readSql, Object... readArgs) {
+		if(lock(cartId) == null) {
+			return;
+		}
+		LockedCart locked = new LockedCart();
+		jdbcTemplate.query(readSql, locked::read, readArgs);
+		if(locked.version == null) {
+			return;
+		}
+		LineWrites writes = new LineWrites();
+		long deltaMinor = 0;
+		for(Map.Entry<Item, Integer> change : changes.entrySet()) {
+			deltaMinor = Math.addExact(deltaMinor, writes.plan(cartId, change.getKey(), change.getValue(),
+					locked.lines.get(change.getKey().getId())));
+		}
+		if(writes.isEmpty()) {
+			return;
+		}
+		if(jdbcTemplate.update(ADJUST_TOTAL, deltaMinor, Money.DEFAULT_CURRENCY, cartId, locked.version) != 1) {
+			throw new OptimisticLockingFailureException("Cart " + cartId + " changed while it was locked");
+		}
+		writes.execute(jdbcTemplate);
+	}
+
+	private static final class LockedCart {
+
+		private Long version;
+
+		// item id -> {quantity, unit price in minor units}
+		private final Map<Long, long[]> lines = new HashMap<>();
+
+		private void read(ResultSet rs) throws SQLException {
+			version = rs.getLong(1);
+			long itemId = rs.getLong(2);
+			if(!rs.wasNull()) {
+				lines.put(itemId, new long[] {rs.getInt(3), rs.getLong(4)});
+			}
+		}
+	}
+
+	/**
+	 * The line statements for one mutation, grouped so each kind goes out as one JDBC batch.
+	 */
+	private static final class LineWrites {
+
+		private final List<Object[]> increments = new ArrayList<>();
+
+		private final List<Object[]> inserts = new ArrayList<>();
+
+		private final List<Object[]> decrements = new ArrayList<>();
+
+		private final List<Object[]> deletes = new ArrayList<>();
+
+		/**
+		 * Queues the statement for one change against the line as it was read under the lock and
+		 * returns the change in the total. New lines take the item's current price; existing ones keep
+		 * the price they were added at.
+		 *
+		 * @throws ArithmeticException if the line's quantity or the total would overflow
+		 */
+		private long plan(Long cartId, Item item, int quantity, long[] line) {
+			if(quantity > 0) {
+				if(line != null) {
+					// the column is an int; fail here rather than as an out-of-range error from H2
+					Math.toIntExact(line[0] + quantity);
+					increments.add(new Object[] {quantity, cartId, item.getId()});
+					return Math.multiplyExact(line[1], (long) quantity);
+				}
+				long unitPriceMinor = Money.toMinorUnits(item.getPrice(), Money.DEFAULT_CURRENCY);
+				inserts.add(new Object[] {cartId, item.getId(), quantity, unitPriceMinor});
+				return Math.multiplyExact(unitPriceMinor, (long) quantity);
+			}
+			if(quantity == 0 || line == null) {
+				return 0;
+			}
+			long removed = Math.min(-(long) quantity, line[0]);
+			if(removed == line[0]) {
+				deletes.add(new Object[] {cartId, item.getId()});
+			} else {
+				decrements.add(new Object[] {removed, cartId, item.getId()});
+			}
+			return -Math.multiplyExact(line[1], removed);
+		}
+
+		private boolean isEmpty() {
+			return increments.isEmpty() && inserts.isEmpty() && decrements.isEmpty() && deletes.isEmpty();
+		}
+
+		private void execute(JdbcTemplate jdbcTemplate) {
+			batch(jdbcTemplate, INCREMENT_LINE, increments);
+			batch(jdbcTemplate, INSERT_LINE, inserts);
+			batch(jdbcTemplate, DECREMENT_LINE, decrements);
+			batch(jdbcTemplate, DELETE_LINE, deletes);
+		}
+
+		private static void batch(JdbcTemplate jdbcTemplate, String sql, List<Object[]> args) {
+			if(args.size() == 1) {
+				jdbcTemplate.update(sql, args.get(0));
+			} else if(!args.isEmpty()) {
+				jdbcTemplate.batchUpdate(sql, args);
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.demo.model.persistence.Item;
@@ -11,4 +12,6 @@ import org.springframework.stereotype.Repository;
 public interface ItemRepository extends JpaRepository<Item, Long> {
 	List<Item> findByName(String name);
 
+	List<Item> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
 }
@@ -0,0 +1,23 @@
+package com.example.demo.model.persistence.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.model.persistence.ItemStock;
+
+@Repository
+public interface ItemStockRepository extends JpaRepository<ItemStock, Long> {
+	/**
+	 * Takes {@code quantity} units off the row if it has that many; returns 0 otherwise.
+	 */
+	@Modifying
+	@Query("update ItemStock s set s.quantity = s.quantity - :quantity where s.itemId = :itemId and s.quantity >= :quantity")
+	int deduct(@Param("itemId") Long itemId, @Param("quantity") long quantity);
+
+	@Modifying
+	@Query("update ItemStock s set s.quantity = s.quantity + :quantity where s.itemId = :itemId")
+	int add(@Param("itemId") Long itemId, @Param("quantity") long quantity);
+}
@@ -1,14 +1,33 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.time.Instant;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderSummary;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface OrderRepository extends JpaRepository<UserOrder, Long> {
-	List<UserOrder> findByUser(User user);
+public interface OrderRepository extends JpaRepository<UserOrder, Long>, OrderRepositoryCustom {
+	@EntityGraph(attributePaths = {"user", "lines"})
+	UserOrder findByIdAndUser(Long id, User user);
+
+	/**
+	 * Newest-first page of a user's orders created in [from, before) where orders created at
+	 * exactly {@code before} only qualify below {@code beforeId}; served by the (user_id, created_at) index.
+	 */
+	@Query("select new com.example.demo.model.responses.OrderSummary(o.id, o.createdAt, o.total.minorUnits,"
+			+ " o.total.currency, o.lineCount) from UserOrder o"
+			+ " where o.user = :user and o.createdAt >= :from"
+			+ " and (o.createdAt < :before or (o.createdAt = :before and o.id < :beforeId))"
+			+ " order by o.createdAt desc, o.id desc")
+	List<OrderSummary> findSummaries(@Param("user") User user, @Param("from") Instant from,
+			@Param("before") Instant before, @Param("beforeId") Long beforeId, Pageable pageable);
 }
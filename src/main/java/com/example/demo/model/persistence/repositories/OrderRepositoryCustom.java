@@ -0,0 +1,14 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.util.Collection;
+
+import com.example.demo.model.persistence.UserOrder;
+
+public interface OrderRepositoryCustom {
+	void insertLines(UserOrder order);
+
+	/**
+	 * Writes the lines of several already-persisted orders as one JDBC batch.
+	 */
+	void insertLines(Collection<UserOrder> orders);
+}
@@ -0,0 +1,62 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+	private static final String INSERT_LINE = "insert into order_line"
+			+ " (order_id, line_number, item_id, item_name, quantity, unit_price_minor, discount_minor)"
+			+ " values (?, ?, ?, ?, ?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public void insertLines(UserOrder order) {
+		insertLines(Collections.singletonList(order));
+	}
+
+	@Override
+	public void insertLines(Collection<UserOrder> orders) {
+		List<OrderLine> lines = new ArrayList<>();
+		for (UserOrder order : orders) {
+			for (OrderLine line : order.getLines()) {
+				line.setOrderId(order.getId());
+				lines.add(line);
+			}
+		}
+		if (lines.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(INSERT_LINE, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				OrderLine line = lines.get(i);
+				ps.setLong(1, line.getOrderId());
+				ps.setInt(2, line.getLineNumber());
+				ps.setLong(3, line.getItemId());
+				ps.setString(4, line.getItemName());
+				ps.setInt(5, line.getQuantity());
+				ps.setLong(6, line.getUnitPriceMinor());
+				ps.setLong(7, line.getDiscountMinor());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return lines.size();
+			}
+		});
+	}
+}
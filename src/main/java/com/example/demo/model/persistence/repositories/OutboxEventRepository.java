@@ -0,0 +1,24 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.OutboxEvent;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+	List<OutboxEvent> findAllByOrderByIdAsc(Pageable pageable);
+
+	@Modifying
+	@Transactional
+	@Query("delete from OutboxEvent e where e.id in :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,15 @@
+package com.example.demo.model.persistence.repositories;
+
+/**
+ * Just the columns needed to authenticate a user and find their cart, without loading the entity.
+ */
+public interface UserCredentials {
+
+	Long getId();
+
+	Long getCartId();
+
+	String getUsername();
+
+	String getPassword();
+}
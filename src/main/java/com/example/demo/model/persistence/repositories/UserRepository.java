@@ -1,11 +1,25 @@
 package com.example.demo.model.persistence.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.User;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-	User findByUsername(String username);
+	default User findByUsername(String username) {
+		return findByUsernameKey(User.normalizeUsername(username));
+	}
+
+	User findByUsernameKey(String usernameKey);
+
+	default UserCredentials findCredentialsByUsername(String username) {
+		return findCredentialsByUsernameKey(User.normalizeUsername(username));
+	}
+
+	@Query("select u.id as id, u.cart.id as cartId, u.username as username, u.password as password "
+			+ "from User u where u.usernameKey = :usernameKey")
+	UserCredentials findCredentialsByUsernameKey(@Param("usernameKey") String usernameKey);
 }
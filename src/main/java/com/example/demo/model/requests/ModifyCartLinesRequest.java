@@ -0,0 +1,31 @@
+package com.example.demo.model.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ModifyCartLinesRequest {
+
+	@JsonProperty
+	private String username;
+
+	@JsonProperty
+	private List<CartLineChange> lines = new ArrayList<>();
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public List<CartLineChange> getLines() {
+		return lines;
+	}
+
+	public void setLines(List<CartLineChange> lines) {
+		this.lines = lines;
+	}
+}
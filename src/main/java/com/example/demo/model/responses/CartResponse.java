@@ -0,0 +1,77 @@
+package com.example.demo.model.responses;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Money;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What a client sees of its cart: lines carry the item's id and name rather than the whole
+ * catalog entry, and the owning user is left out.
+ */
+public class CartResponse {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final List<CartLineResponse> lines;
+
+	@JsonProperty
+	private final Money total;
+
+	@JsonProperty
+	private final Money discount;
+
+	@JsonProperty
+	private final Money payable;
+
+	private CartResponse(Cart cart) {
+		this.id = cart.getId();
+		List<CartLineResponse> lines = new ArrayList<>(cart.getLines().size());
+		for(CartLine line : cart.getLines()) {
+			lines.add(new CartLineResponse(line));
+		}
+		this.lines = Collections.unmodifiableList(lines);
+		this.total = cart.getTotal();
+		this.discount = cart.getDiscount();
+		this.payable = cart.getPayable();
+	}
+
+	public static CartResponse from(Cart cart) {
+		return new CartResponse(cart);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<CartLineResponse> getLines() {
+		return lines;
+	}
+
+	public CartLineResponse getLine(Long itemId) {
+		for(CartLineResponse line : lines) {
+			if(line.getItemId().equals(itemId)) {
+				return line;
+			}
+		}
+		return null;
+	}
+
+	public Money getTotal() {
+		return total;
+	}
+
+	public Money getDiscount() {
+		return discount;
+	}
+
+	public Money getPayable() {
+		return payable;
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.Item;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ItemResponse {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final String name;
+
+	@JsonProperty
+	private final BigDecimal price;
+
+	@JsonProperty
+	private final String description;
+
+	@JsonCreator
+	public ItemResponse(@JsonProperty("id") Long id, @JsonProperty("name") String name,
+			@JsonProperty("price") BigDecimal price, @JsonProperty("description") String description) {
+		this.id = id;
+		this.name = name;
+		this.price = price;
+		this.description = description;
+	}
+
+	public static ItemResponse from(Item item) {
+		return new ItemResponse(item.getId(), item.getName(), item.getPrice(), item.getDescription());
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderLineResponse {
+
+	@JsonProperty
+	private final Long itemId;
+
+	@JsonProperty
+	private final String name;
+
+	@JsonProperty
+	private final int quantity;
+
+	@JsonProperty
+	private final Money unitPrice;
+
+	@JsonProperty
+	private final Money discount;
+
+	public OrderLineResponse(OrderLine line) {
+		this.itemId = line.getItemId();
+		this.name = line.getItemName();
+		this.quantity = line.getQuantity();
+		this.unitPrice = line.getUnitPrice();
+		this.discount = line.getDiscount();
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public Money getUnitPrice() {
+		return unitPrice;
+	}
+
+	public Money getDiscount() {
+		return discount;
+	}
+}
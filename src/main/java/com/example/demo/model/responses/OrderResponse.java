@@ -0,0 +1,77 @@
+package com.example.demo.model.responses;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An order with its lines, without the user it belongs to. Immutable, so one instance can be
+ * replayed to every retry of an idempotent submission.
+ */
+public class OrderResponse {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final Instant createdAt;
+
+	@JsonProperty
+	private final List<OrderLineResponse> lines;
+
+	@JsonProperty
+	private final Money total;
+
+	@JsonProperty
+	private final Money discount;
+
+	@JsonProperty
+	private final int lineCount;
+
+	private OrderResponse(UserOrder order) {
+		this.id = order.getId();
+		this.createdAt = order.getCreatedAt();
+		List<OrderLineResponse> lines = new ArrayList<>(order.getLines().size());
+		for(OrderLine line : order.getLines()) {
+			lines.add(new OrderLineResponse(line));
+		}
+		this.lines = Collections.unmodifiableList(lines);
+		this.total = order.getTotal();
+		this.discount = order.getDiscount();
+		this.lineCount = order.getLineCount();
+	}
+
+	public static OrderResponse from(UserOrder order) {
+		return new OrderResponse(order);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public List<OrderLineResponse> getLines() {
+		return lines;
+	}
+
+	public Money getTotal() {
+		return total;
+	}
+
+	public Money getDiscount() {
+		return discount;
+	}
+
+	public int getLineCount() {
+		return lineCount;
+	}
+}
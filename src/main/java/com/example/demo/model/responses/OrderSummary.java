@@ -0,0 +1,44 @@
+package com.example.demo.model.responses;
+
+import java.time.Instant;
+
+import com.example.demo.model.persistence.Money;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderSummary {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	private Instant createdAt;
+
+	@JsonProperty
+	private Money total;
+
+	@JsonProperty
+	private int lineCount;
+
+	public OrderSummary(Long id, Instant createdAt, long totalMinor, String currency, int lineCount) {
+		this.id = id;
+		this.createdAt = createdAt;
+		this.total = new Money(totalMinor, currency);
+		this.lineCount = lineCount;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public Money getTotal() {
+		return total;
+	}
+
+	public int getLineCount() {
+		return lineCount;
+	}
+}
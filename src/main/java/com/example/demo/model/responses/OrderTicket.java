@@ -0,0 +1,64 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Receipt for an order accepted by the asynchronous pipeline. Tickets are immutable; each status
+ * change replaces the stored ticket with a new one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderTicket {
+
+	public enum Status {
+		PENDING, COMPLETED, FAILED
+	}
+
+	@JsonProperty
+	private final String id;
+
+	@JsonIgnore
+	private final String owner;
+
+	@JsonProperty
+	private final Status status;
+
+	@JsonProperty
+	private final Long orderId;
+
+	private OrderTicket(String id, String owner, Status status, Long orderId) {
+		this.id = id;
+		this.owner = owner;
+		this.status = status;
+		this.orderId = orderId;
+	}
+
+	public static OrderTicket pending(String id, String owner) {
+		return new OrderTicket(id, owner, Status.PENDING, null);
+	}
+
+	public OrderTicket completed(Long orderId) {
+		return new OrderTicket(id, owner, Status.COMPLETED, orderId);
+	}
+
+	public OrderTicket failed() {
+		return new OrderTicket(id, owner, Status.FAILED, null);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+}
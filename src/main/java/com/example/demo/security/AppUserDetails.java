@@ -0,0 +1,32 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Login principal that also carries the user's id and cart id, so they can be written into the
+ * issued tokens.
+ */
+public class AppUserDetails extends User {
+
+    private final Long userId;
+
+    private final Long cartId;
+
+    public AppUserDetails(Long userId, Long cartId, String username, String password,
+                          Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.security;
+
+import com.example.demo.model.persistence.User;
+
+/**
+ * Principal set by {@link JWTAuthenticationVerficationFilter} from the access token's claims.
+ * Controllers take it with {@code @AuthenticationPrincipal} and use the ids directly instead of
+ * looking the user up by name. Ids are null for tokens issued before they were added.
+ * It deliberately does not implement {@link java.security.Principal}: Spring MVC would then resolve
+ * such parameters from the servlet request's principal instead. {@link #toString()} returns the
+ * username, which is what {@code Authentication.getName()} reports.
+ */
+public class AuthenticatedUser {
+
+    private final Long userId;
+
+    private final Long cartId;
+
+    private final String username;
+
+    public AuthenticatedUser(Long userId, Long cartId, String username) {
+        this.userId = userId;
+        this.cartId = cartId;
+        this.username = username;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Whether {@code username} (compared case-insensitively) names this principal.
+     */
+    public boolean is(String username) {
+        return username != null && User.normalizeUsername(username).equals(User.normalizeUsername(this.username));
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
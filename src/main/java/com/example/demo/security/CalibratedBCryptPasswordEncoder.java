@@ -0,0 +1,84 @@
+package com.example.demo.security;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCrypt encoder whose cost factor is chosen at startup for a target hashing latency. Hashing
+ * runs on the {@link PasswordHashingExecutor}, and hashes stored with a lower cost report
+ * {@link #upgradeEncoding(String)} so they are re-hashed on the next successful login.
+ */
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    public static final Logger log = LogManager.getLogger(CalibratedBCryptPasswordEncoder.class);
+
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final int strength;
+
+    private final PasswordHashingExecutor executor;
+
+    public CalibratedBCryptPasswordEncoder(int strength, PasswordHashingExecutor executor) {
+        super(strength);
+        this.strength = strength;
+        this.executor = executor;
+    }
+
+    /**
+     * Times one hash at {@code minStrength} and raises the cost while the doubled estimate still
+     * fits within {@code targetMillis}, capped at {@code maxStrength}.
+     */
+    public static CalibratedBCryptPasswordEncoder calibrate(long targetMillis, int minStrength, int maxStrength,
+                                                            PasswordHashingExecutor executor) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode(CALIBRATION_PASSWORD);
+        long start = System.nanoTime();
+        probe.encode(CALIBRATION_PASSWORD);
+        long estimateMillis = Math.max(1L, (System.nanoTime() - start) / 1_000_000L);
+        int strength = minStrength;
+        while (strength < maxStrength && estimateMillis * 2 <= targetMillis) {
+            strength++;
+            estimateMillis *= 2;
+        }
+        log.info("BCrypt cost set to {} (about {} ms per hash, target {} ms)", strength, estimateMillis, targetMillis);
+        return new CalibratedBCryptPasswordEncoder(strength, executor);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(() -> super.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(() -> super.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int cost = costOf(encodedPassword);
+        return cost >= 0 && cost < strength;
+    }
+
+    /**
+     * Returns the cost field of a {@code $2a$NN$...} hash, or -1 if it is not a BCrypt hash.
+     */
+    static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7
+                || encodedPassword.charAt(0) != '$' || encodedPassword.charAt(3) != '$'
+                || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = encodedPassword.charAt(4);
+        char units = encodedPassword.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(units)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+}
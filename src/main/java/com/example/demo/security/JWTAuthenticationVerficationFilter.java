@@ -1,6 +1,6 @@
 package com.example.demo.security;
 
-import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,13 +15,19 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
-
 @Component
 public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilter {
 
-    public JWTAuthenticationVerficationFilter(AuthenticationManager authenticationManager) {
+    private final JWTTokenVerifier tokenVerifier;
+
+    private final TokenRevocationList revocationList;
+
+    public JWTAuthenticationVerficationFilter(AuthenticationManager authenticationManager,
+                                              JWTTokenVerifier tokenVerifier,
+                                              TokenRevocationList revocationList) {
         super(authenticationManager);
+        this.tokenVerifier = tokenVerifier;
+        this.revocationList = revocationList;
     }
 
     @Override
@@ -44,11 +50,19 @@ public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilte
         String token = req.getHeader(SecurityConstants.HEADER_STRING);
         if (token != null) {
 
-            String user = JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build()
-                    .verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""))
-                    .getSubject();
-            if (user != null) {
-                return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
+            JWTTokenVerifier.VerifiedToken verified;
+            try {
+                verified = tokenVerifier.verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""));
+            } catch (JWTVerificationException e) {
+                logger.debug("Rejected bearer token: " + e.getMessage());
+                return null;
+            }
+            if (verified.getSubject() != null && verified.isAccessToken() && !revocationList.isRevoked(verified)) {
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(new AuthenticatedUser(verified.getUserId(),
+                                verified.getCartId(), verified.getSubject()), null, new ArrayList<>());
+                authentication.setDetails(verified);
+                return authentication;
             }
             return null;
         }
@@ -0,0 +1,46 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.Date;
+import java.util.UUID;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+
+/**
+ * Signs the short-lived access token and the long-lived refresh token handed out at login and
+ * on refresh. Every token carries a random {@code jti} so it can be revoked individually, and the
+ * user and cart ids so requests can skip the username lookup.
+ */
+@Component
+public class JWTTokenIssuer {
+
+    private final Algorithm algorithm = HMAC512(SecurityConstants.SECRET.getBytes());
+
+    public void issue(String username, Long userId, Long cartId, HttpServletResponse res) {
+        long now = System.currentTimeMillis();
+        res.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + sign(username, userId, cartId,
+                SecurityConstants.ACCESS_TOKEN_TYPE, now + SecurityConstants.EXPIRATION_TIME));
+        res.addHeader(SecurityConstants.REFRESH_HEADER_STRING, sign(username, userId, cartId,
+                SecurityConstants.REFRESH_TOKEN_TYPE, now + SecurityConstants.REFRESH_EXPIRATION_TIME));
+    }
+
+    String sign(String username, Long userId, Long cartId, String type, long expiresAt) {
+        JWTCreator.Builder builder = JWT.create()
+                .withSubject(username)
+                .withJWTId(UUID.randomUUID().toString())
+                .withClaim(SecurityConstants.TOKEN_TYPE_CLAIM, type)
+                .withExpiresAt(new Date(expiresAt));
+        if (userId != null) {
+            builder.withClaim(SecurityConstants.USER_ID_CLAIM, userId);
+        }
+        if (cartId != null) {
+            builder.withClaim(SecurityConstants.CART_ID_CLAIM, cartId);
+        }
+        return builder.sign(algorithm);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.service.Fnv1a;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+
+/**
+ * Verifies bearer tokens with a single shared {@link JWTVerifier} and remembers the outcome,
+ * keyed by the SHA-256 digest of the token, until the token's own expiry. Repeat requests with
+ * the same token cost a digest and a cache lookup instead of a signature check.
+ * Tokens that fail verification are never cached.
+ */
+@Component
+public class JWTTokenVerifier implements MeterBinder {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final JWTVerifier verifier = JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build();
+
+    private final Cache<ByteBuffer, VerifiedToken> verified;
+
+    public JWTTokenVerifier(@Value("${security.token-cache.maximum-size:10000}") long maximumSize) {
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<ByteBuffer, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, VerifiedToken token, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, token.getExpiresAt() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, token, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @throws JWTVerificationException if the token is malformed, badly signed, expired or has no expiry
+     */
+    public VerifiedToken verify(String token) {
+        ByteBuffer key = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        VerifiedToken cached = verified.getIfPresent(key);
+        if (cached != null) {
+            if (cached.getExpiresAt() > System.currentTimeMillis()) {
+                return cached;
+            }
+            verified.invalidate(key);
+        }
+        DecodedJWT decoded = verifier.verify(token);
+        Date expiresAt = decoded.getExpiresAt();
+        if (expiresAt == null) {
+            throw new TokenExpiredException("Token has no expiry");
+        }
+        VerifiedToken result = new VerifiedToken(decoded.getSubject(), decoded.getId(),
+                decoded.getClaim(SecurityConstants.TOKEN_TYPE_CLAIM).asString(),
+                decoded.getClaim(SecurityConstants.USER_ID_CLAIM).asLong(),
+                decoded.getClaim(SecurityConstants.CART_ID_CLAIM).asLong(), expiresAt.getTime());
+        verified.put(key, result);
+        return result;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, verified, "security.verifiedTokens");
+    }
+
+    public static final class VerifiedToken {
+
+        private final String subject;
+
+        private final String id;
+
+        private final String type;
+
+        private final long idHash;
+
+        private final Long userId;
+
+        private final Long cartId;
+
+        private final long expiresAt;
+
+        public VerifiedToken(String subject, String id, String type, Long userId, Long cartId, long expiresAt) {
+            this.subject = subject;
+            this.id = id;
+            this.type = type;
+            this.userId = userId;
+            this.cartId = cartId;
+            this.idHash = id == null ? 0L : hash(id);
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * 64-bit FNV-1a over the id's chars, used by {@link TokenRevocationList}.
+         */
+        static long hash(String id) {
+            long hash = Fnv1a.mix(Fnv1a.OFFSET_BASIS, id);
+            return hash ^ (hash >>> 31);
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getIdHash() {
+            return idHash;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public Long getCartId() {
+            return cartId;
+        }
+
+        public boolean isAccessToken() {
+            return SecurityConstants.ACCESS_TOKEN_TYPE.equals(type);
+        }
+
+        public boolean isRefreshToken() {
+            return SecurityConstants.REFRESH_TOKEN_TYPE.equals(type);
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
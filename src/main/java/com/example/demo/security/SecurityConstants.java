@@ -1,10 +1,18 @@
 package com.example.demo.security;
 
 public class SecurityConstants {
-    public static String SECRET = "outSecret";
-    public static long EXPIRATION_TIME = 864_000_000; //10 days
-    public static String TOKEN_PREFIX = "Bearer ";
-    public static String HEADER_STRING = "Authorization";
-    public static String SIGN_UP_URL = "/api/user/create";
-    public static String LOG_IN_URL = "/login";
+    public static final String SECRET = "outSecret";
+    public static final long EXPIRATION_TIME = 900_000; //15 minutes, access tokens
+    public static final long REFRESH_EXPIRATION_TIME = 864_000_000; //10 days
+    public static final String TOKEN_PREFIX = "Bearer ";
+    public static final String HEADER_STRING = "Authorization";
+    public static final String REFRESH_HEADER_STRING = "Refresh-Token";
+    public static final String TOKEN_TYPE_CLAIM = "token_type";
+    public static final String ACCESS_TOKEN_TYPE = "access";
+    public static final String REFRESH_TOKEN_TYPE = "refresh";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String CART_ID_CLAIM = "cid";
+    public static final String SIGN_UP_URL = "/api/user/create";
+    public static final String LOG_IN_URL = "/login";
+    public static final String REFRESH_URL = "/api/auth/refresh";
 }
@@ -0,0 +1,105 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Denylist of revoked token ids, held only until each token would have expired anyway.
+ * A Bloom filter answers the common "not revoked" case with a few array reads; only possible
+ * hits consult the exact map. Lookups use the id hash precomputed on {@link JWTTokenVerifier.VerifiedToken},
+ * so checking a request allocates nothing. Expired ids are swept periodically and the filter is
+ * rebuilt from what remains.
+ */
+@Component
+public class TokenRevocationList implements MeterBinder {
+
+    private static final int HASH_FUNCTIONS = 4;
+
+    private final int bits;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile AtomicLongArray filter;
+
+    public TokenRevocationList(@Value("${security.revocation.filter-bits:1048576}") int bits) {
+        this.bits = Math.max(64, bits);
+        this.filter = new AtomicLongArray((this.bits + 63) / 64);
+    }
+
+    /**
+     * Revokes the token, returning whether this call was the one that revoked it. Exactly one of
+     * any number of concurrent calls for the same live token gets {@code true}.
+     */
+    public boolean revoke(JWTTokenVerifier.VerifiedToken token) {
+        if (token.getId() == null || token.getExpiresAt() <= System.currentTimeMillis()) {
+            return false;
+        }
+        boolean first = revoked.putIfAbsent(token.getId(), token.getExpiresAt()) == null;
+        set(filter, token.getIdHash());
+        return first;
+    }
+
+    public boolean isRevoked(JWTTokenVerifier.VerifiedToken token) {
+        return token.getId() != null && mightContain(filter, token.getIdHash()) && revoked.containsKey(token.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.sweep-millis:60000}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        if (!revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+            return;
+        }
+        AtomicLongArray rebuilt = new AtomicLongArray(filter.length());
+        for (String id : revoked.keySet()) {
+            set(rebuilt, JWTTokenVerifier.VerifiedToken.hash(id));
+        }
+        filter = rebuilt;
+        // a concurrent revoke may have set its bits in the old filter; re-add everything after the swap
+        for (String id : revoked.keySet()) {
+            set(rebuilt, JWTTokenVerifier.VerifiedToken.hash(id));
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.gaugeMapSize("security.revoked.tokens", Collections.emptyList(), revoked);
+    }
+
+    private void set(AtomicLongArray target, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long current;
+            do {
+                current = target.get(word);
+            } while ((current & mask) == 0 && !target.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private boolean mightContain(AtomicLongArray target, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            if ((target.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
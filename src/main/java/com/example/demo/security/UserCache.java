@@ -0,0 +1,94 @@
+package com.example.demo.security;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserCredentials;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of login lookups in front of {@link UserDetailsServiceImpl}. Unknown usernames
+ * are cached too, so repeated failed logins do not reach the database. Entries are immutable
+ * snapshots rather than {@code UserDetails}, because authentication erases credentials on the
+ * principal it returns. Anything that creates a user or changes a password must call
+ * {@link #invalidate(String)}.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private static final CachedUser UNKNOWN = new CachedUser(null, null, null, null);
+
+    private final Cache<String, CachedUser> users;
+
+    public UserCache(@Value("${security.user-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${security.user-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached snapshot for {@code username}, loading it with {@code loader} on a miss,
+     * or {@code null} if the user does not exist.
+     */
+    public CachedUser get(String username, Function<String, UserCredentials> loader) {
+        CachedUser cached = users.get(User.normalizeUsername(username), key -> {
+            UserCredentials user = loader.apply(key);
+            return user == null ? UNKNOWN
+                    : new CachedUser(user.getId(), user.getCartId(), user.getUsername(), user.getPassword());
+        });
+        return cached == UNKNOWN ? null : cached;
+    }
+
+    public void invalidate(String username) {
+        users.invalidate(User.normalizeUsername(username));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, users, "security.users");
+    }
+
+    public static final class CachedUser {
+
+        private final Long id;
+
+        private final Long cartId;
+
+        private final String username;
+
+        private final String password;
+
+        CachedUser(Long id, Long cartId, String username, String password) {
+            this.id = id;
+            this.cartId = cartId;
+            this.username = username;
+            this.password = password;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getCartId() {
+            return cartId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+    }
+}
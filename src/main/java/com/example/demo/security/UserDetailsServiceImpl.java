@@ -6,6 +6,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -13,18 +14,38 @@ import org.springframework.stereotype.Service;
 import java.util.Collections;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserCache userCache;
+
     public static final Logger log = LogManager.getLogger(UserDetailsServiceImpl.class);
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException{
-        User user = userRepository.findByUsername(username);
+        UserCache.CachedUser user = userCache.get(username, userRepository::findCredentialsByUsername);
         if (user == null) {
             log.error("Load user by username fail, there is no username with {}", username);
             throw new UsernameNotFoundException(username);
         }
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), Collections.emptyList());
+        return new AppUserDetails(user.getId(), user.getCartId(), user.getUsername(), user.getPassword(), Collections.emptyList());
+    }
+
+    /**
+     * Called after a successful login whose stored hash used a lower BCrypt cost than the current one.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername());
+        if (user == null) {
+            return userDetails;
+        }
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        userCache.invalidate(user.getUsername());
+        log.info("Upgraded password hash for {}", user.getUsername());
+        return new AppUserDetails(user.getId(), user.getCart() == null ? null : user.getCart().getId(),
+                user.getUsername(), newPassword, userDetails.getAuthorities());
     }
 }
@@ -0,0 +1,37 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.persistence.repositories.UserCredentials;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.AuthenticatedUser;
+
+/**
+ * Finds the cart a cart or order request is for, without loading the cart itself.
+ */
+@Service
+public class CartResolver {
+
+	private final UserRepository userRepository;
+
+	@Autowired
+	public CartResolver(UserRepository userRepository) {
+		this.userRepository = userRepository;
+	}
+
+	/**
+	 * Takes the cart id from the caller's token when the request is for the caller's own cart (it
+	 * names the caller, or nobody), otherwise looks the username up in the credentials projection.
+	 *
+	 * @return the cart id, or {@code null} if there is no such user
+	 */
+	public Long findCartId(String username, AuthenticatedUser principal) {
+		if(principal != null && principal.getCartId() != null
+				&& (username == null || principal.is(username))) {
+			return principal.getCartId();
+		}
+		UserCredentials user = userRepository.findCredentialsByUsername(username);
+		return user == null ? null : user.getCartId();
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.demo.service;
+
+/**
+ * 64-bit FNV-1a, the hash behind entity tags, promotion plan fingerprints and the token revocation
+ * filter. Start from {@link #OFFSET_BASIS} and fold values in one after another.
+ */
+public final class Fnv1a {
+
+	public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long PRIME = 0x100000001b3L;
+
+	private Fnv1a() {
+	}
+
+	/**
+	 * Folds in the eight bytes of the value, lowest first.
+	 */
+	public static long mix(long hash, long value) {
+		for(int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+			hash = (hash ^ ((value >>> shift) & 0xff)) * PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Folds in the chars of the value, one step per char.
+	 */
+	public static long mix(long hash, CharSequence value) {
+		for(int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * PRIME;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Remembers the result of a request made under an {@code Idempotency-Key}, so a replay of the key
+ * gets the first result back instead of repeating the work. A replay that arrives while the first
+ * attempt is still running waits for it. Failed attempts, and attempts whose result is an empty
+ * {@link Optional} (nothing was there to act on), are forgotten, so the client can retry with the
+ * same key. The store is in memory, bounded and expires keys after a fixed time; it only
+ * deduplicates requests that reach the same instance.
+ */
+@Component
+public class IdempotencyKeyStore implements MeterBinder {
+
+	public static final int MAX_KEY_LENGTH = 255;
+
+	private final Cache<String, CompletableFuture<Object>> results;
+
+	@Autowired
+	public IdempotencyKeyStore(@Value("${idempotency.maximum-size:100000}") long maximumSize,
+			@Value("${idempotency.ttl-seconds:86400}") long ttlSeconds) {
+		this.results = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+
+	public static boolean isValidKey(String key) {
+		return key != null && !key.isEmpty() && key.length() <= MAX_KEY_LENGTH;
+	}
+
+	/**
+	 * Runs {@code action} the first time {@code key} is seen within {@code scope} and returns its
+	 * result; later calls with the same scope and key return that result without running it. An
+	 * empty {@link Optional} is handed to the calls already waiting on it but not remembered.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(String scope, String key, Supplier<T> action) {
+		String scopedKey = scope + '\n' + key;
+		CompletableFuture<Object> attempt = new CompletableFuture<>();
+		CompletableFuture<Object> first = results.asMap().putIfAbsent(scopedKey, attempt);
+		if(first != null) {
+			try {
+				return (T) first.join();
+			} catch (CompletionException e) {
+				throw rethrow(e.getCause());
+			}
+		}
+		try {
+			T result = action.get();
+			if(result instanceof Optional && !((Optional<?>) result).isPresent()) {
+				results.asMap().remove(scopedKey, attempt);
+			}
+			attempt.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			results.asMap().remove(scopedKey, attempt);
+			attempt.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable cause) {
+		if(cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, results, "idempotency.keys");
+	}
+}
@@ -0,0 +1,23 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.OutboxEvent;
+
+/**
+ * Keeps published events in memory; meant for tests and local runs.
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+
+	private final List<OutboxEvent> events = new ArrayList<>();
+
+	@Override
+	public synchronized void publish(List<OutboxEvent> batch) {
+		events.addAll(batch);
+	}
+
+	public synchronized List<OutboxEvent> getEvents() {
+		return new ArrayList<>(events);
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.demo.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InsufficientStockException extends RuntimeException {
+
+	private final Long itemId;
+
+	public InsufficientStockException(Long itemId) {
+		super("Not enough stock of item " + itemId);
+		this.itemId = itemId;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache in front of {@link ItemRepository}. Catalog writes must go through
+ * {@link #save(Item)} (or call {@link #evict(Long)}) so cached lookups are invalidated;
+ * saves also publish an {@link ItemChangedEvent} for other in-memory views of the catalog.
+ */
+@Service
+public class ItemCatalog implements MeterBinder {
+
+	private final ItemRepository itemRepository;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final Cache<Long, Item> itemsById;
+
+	private final Cache<String, List<Item>> itemsByName;
+
+	@Autowired
+	public ItemCatalog(ItemRepository itemRepository, ApplicationEventPublisher eventPublisher,
+			@Value("${catalog.cache.maximum-size:10000}") long maximumSize,
+			@Value("${catalog.cache.ttl-seconds:600}") long ttlSeconds) {
+		this.itemRepository = itemRepository;
+		this.eventPublisher = eventPublisher;
+		this.itemsById = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+		this.itemsByName = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+
+	public Optional<Item> findById(Long id) {
+		return Optional.ofNullable(itemsById.get(id, key -> itemRepository.findById(key).orElse(null)));
+	}
+
+	/**
+	 * Looks up several items at once; the ones not cached are loaded with a single query.
+	 * Ids with no item are left out of the result.
+	 */
+	public Map<Long, Item> findAllById(Collection<Long> ids) {
+		Map<Long, Item> found = new HashMap<>(itemsById.getAllPresent(ids));
+		List<Long> missing = new ArrayList<>();
+		for(Long id : ids) {
+			if(!found.containsKey(id)) {
+				missing.add(id);
+			}
+		}
+		if(!missing.isEmpty()) {
+			for(Item item : itemRepository.findAllById(missing)) {
+				itemsById.put(item.getId(), item);
+				found.put(item.getId(), item);
+			}
+		}
+		return found;
+	}
+
+	public List<Item> findByName(String name) {
+		return itemsByName.get(name, itemRepository::findByName);
+	}
+
+	public Item save(Item item) {
+		Item saved = itemRepository.save(item);
+		evict(saved.getId());
+		eventPublisher.publishEvent(new ItemChangedEvent(saved));
+		return saved;
+	}
+
+	public void evict(Long id) {
+		itemsById.invalidate(id);
+		itemsByName.invalidateAll();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, itemsById, "catalog.itemsById");
+		CaffeineCacheMetrics.monitor(registry, itemsByName, "catalog.itemsByName");
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Item;
+
+public class ItemChangedEvent {
+
+	private final Item item;
+
+	public ItemChangedEvent(Item item) {
+		this.item = item;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.responses.ItemResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * UTF-8 JSON of {@link ItemResponse}s, serialized once per item version and then copied
+ * straight into responses. An entry is only served for the exact version it was written from,
+ * so an item changed by another instance is re-serialized as soon as the new row is read;
+ * {@link ItemChangedEvent}s drop the entry right away.
+ */
+@Component
+public class ItemJsonCache implements MeterBinder {
+
+	private final ObjectMapper objectMapper;
+
+	private final Cache<Long, VersionedJson> json;
+
+	@Autowired
+	public ItemJsonCache(ObjectMapper objectMapper,
+			@Value("${catalog.json-cache.maximum-size:10000}") long maximumSize) {
+		this.objectMapper = objectMapper;
+		this.json = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * The item's JSON. Callers must not modify the returned array.
+	 */
+	public byte[] toJson(Item item) {
+		VersionedJson cached = json.getIfPresent(item.getId());
+		if(cached != null && cached.version == item.getVersion()) {
+			return cached.bytes;
+		}
+		byte[] bytes = serialize(item);
+		json.put(item.getId(), new VersionedJson(item.getVersion(), bytes));
+		return bytes;
+	}
+
+	/**
+	 * The items as one JSON array, assembled from the cached JSON of each.
+	 */
+	public byte[] toJsonArray(List<Item> items) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64 + items.size() * 128);
+		out.write('[');
+		for(int i = 0; i < items.size(); i++) {
+			if(i > 0) {
+				out.write(',');
+			}
+			byte[] bytes = toJson(items.get(i));
+			out.write(bytes, 0, bytes.length);
+		}
+		out.write(']');
+		return out.toByteArray();
+	}
+
+	@EventListener
+	public void onItemChanged(ItemChangedEvent event) {
+		json.invalidate(event.getItem().getId());
+	}
+
+	private byte[] serialize(Item item) {
+		try {
+			return objectMapper.writeValueAsBytes(ItemResponse.from(item));
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, json, "catalog.itemJson");
+	}
+
+	private static final class VersionedJson {
+
+		private final long version;
+
+		private final byte[] bytes;
+
+		private VersionedJson(long version, byte[] bytes) {
+			this.version = version;
+			this.bytes = bytes;
+		}
+	}
+}
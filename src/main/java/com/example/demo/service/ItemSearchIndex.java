@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * In-memory inverted index over item names and descriptions. Terms are kept in a sorted map
+ * so a query term matches every indexed term it is a prefix of, which is what type-ahead needs.
+ * Reads are lock-free; writes are serialized and applied per item as the catalog changes.
+ */
+@Service
+public class ItemSearchIndex {
+
+	private static final int REBUILD_BATCH_SIZE = 1000;
+
+	// name matches first, then by id
+	private static final Comparator<Hit> HIT_ORDER = Comparator.comparingInt((Hit h) -> -h.nameScore)
+			.thenComparingLong(h -> h.item.getId());
+
+	public static final Logger log = LogManager.getLogger(ItemSearchIndex.class);
+
+	private final ItemRepository itemRepository;
+
+	private final NavigableMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+
+	private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ItemSearchIndex(ItemRepository itemRepository) {
+		this.itemRepository = itemRepository;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		long cursor = 0L;
+		List<Item> page;
+		do {
+			page = itemRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, REBUILD_BATCH_SIZE));
+			for (Item item : page) {
+				index(item);
+				cursor = item.getId();
+			}
+		} while (page.size() == REBUILD_BATCH_SIZE);
+		log.info("Search index built with {} items and {} terms", documents.size(), postings.size());
+	}
+
+	@EventListener
+	public void onItemChanged(ItemChangedEvent event) {
+		index(event.getItem());
+	}
+
+	public synchronized void index(Item item) {
+		remove(item.getId());
+		Set<String> nameTerms = tokenize(item.getName());
+		Set<String> terms = new HashSet<>(nameTerms);
+		terms.addAll(tokenize(item.getDescription()));
+		for (String term : terms) {
+			postings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(item.getId());
+		}
+		documents.put(item.getId(), new Document(item, nameTerms, terms));
+	}
+
+	public synchronized void remove(Long itemId) {
+		Document previous = documents.remove(itemId);
+		if (previous == null) {
+			return;
+		}
+		for (String term : previous.terms) {
+			Set<Long> ids = postings.get(term);
+			if (ids != null) {
+				ids.remove(itemId);
+				if (ids.isEmpty()) {
+					postings.remove(term);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns items matching every term of the query, where each query term may be a prefix of an
+	 * indexed term. Items matching on name rank ahead of description-only matches.
+	 */
+	public List<Item> search(String query, int offset, int limit) {
+		Set<String> queryTerms = tokenize(query);
+		if (queryTerms.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+		Set<Long> candidates = null;
+		for (String term : queryTerms) {
+			Set<Long> matches = new HashSet<>();
+			for (Set<Long> ids : postings.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+				matches.addAll(ids);
+			}
+			if (candidates == null) {
+				candidates = matches;
+			} else {
+				candidates.retainAll(matches);
+			}
+			if (candidates.isEmpty()) {
+				return Collections.emptyList();
+			}
+		}
+		// keep only the best offset + limit hits, worst at the head, so a short prefix that matches
+		// most of the catalog costs a log of the page per match rather than a sort of every match
+		int keep = (int) Math.min((long) Math.max(offset, 0) + limit, Integer.MAX_VALUE);
+		PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(keep, candidates.size()), HIT_ORDER.reversed());
+		for (Long id : candidates) {
+			Document document = documents.get(id);
+			if (document == null) {
+				continue;
+			}
+			Hit hit = new Hit(document.item, document.nameScore(queryTerms));
+			if (best.size() < keep) {
+				best.add(hit);
+			} else if (HIT_ORDER.compare(hit, best.peek()) < 0) {
+				best.poll();
+				best.add(hit);
+			}
+		}
+		List<Hit> hits = new ArrayList<>(best);
+		hits.sort(HIT_ORDER);
+		List<Item> result = new ArrayList<>(Math.min(limit, hits.size()));
+		for (int i = Math.max(offset, 0); i < hits.size(); i++) {
+			result.add(hits.get(i).item);
+		}
+		return result;
+	}
+
+	public int size() {
+		return documents.size();
+	}
+
+	static Set<String> tokenize(String text) {
+		Set<String> tokens = new LinkedHashSet<>();
+		if (text == null) {
+			return tokens;
+		}
+		for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+	private static final class Hit {
+
+		private final Item item;
+
+		private final int nameScore;
+
+		private Hit(Item item, int nameScore) {
+			this.item = item;
+			this.nameScore = nameScore;
+		}
+	}
+
+	private static final class Document {
+
+		private final Item item;
+
+		private final Set<String> nameTerms;
+
+		private final Set<String> terms;
+
+		private Document(Item item, Set<String> nameTerms, Set<String> terms) {
+			this.item = item;
+			this.nameTerms = nameTerms;
+			this.terms = terms;
+		}
+
+		private int nameScore(Set<String> queryTerms) {
+			int score = 0;
+			for (String queryTerm : queryTerms) {
+				for (String nameTerm : nameTerms) {
+					if (nameTerm.startsWith(queryTerm)) {
+						score++;
+						break;
+					}
+				}
+			}
+			return score;
+		}
+	}
+}
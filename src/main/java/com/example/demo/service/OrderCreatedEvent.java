@@ -0,0 +1,42 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Payload of the {@code order.created} outbox event.
+ */
+public class OrderCreatedEvent {
+
+	@JsonProperty
+	private final Long orderId;
+
+	@JsonProperty
+	private final long userId;
+
+	@JsonProperty
+	private final Instant createdAt;
+
+	@JsonProperty
+	private final Money total;
+
+	@JsonProperty
+	private final Money discount;
+
+	@JsonProperty
+	private final List<OrderLine> lines;
+
+	public OrderCreatedEvent(UserOrder order) {
+		this.orderId = order.getId();
+		this.userId = order.getUser().getId();
+		this.createdAt = order.getCreatedAt();
+		this.total = order.getTotal();
+		this.discount = order.getDiscount();
+		this.lines = order.getLines();
+	}
+}
@@ -0,0 +1,217 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderTicket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Asynchronous order submission. Requests only put the cart id on a bounded queue (an array ring
+ * buffer) and get a ticket back; a single writer thread drains the queue in batches and submits
+ * each batch through {@link OrderService#submitAll} in one transaction. The order reflects the cart
+ * as it is when its batch is written, not when the request was made.
+ *
+ * <p>If a batch fails, its orders are retried one transaction at a time so one bad cart cannot
+ * fail the others. Tickets live in memory and expire, so a restart loses queued orders and their
+ * tickets; pending work is drained on a clean shutdown.
+ */
+@Service
+public class OrderPipeline implements MeterBinder {
+
+	private static final long POLL_MILLIS = 200;
+
+	private static final long SHUTDOWN_MILLIS = 10_000;
+
+	public static final Logger log = LogManager.getLogger(OrderPipeline.class);
+
+	private final OrderService orderService;
+
+	private final BlockingQueue<PendingOrder> queue;
+
+	private final int batchSize;
+
+	private final Cache<String, OrderTicket> tickets;
+
+	private final Thread writer;
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public OrderPipeline(OrderService orderService,
+			@Value("${orders.pipeline.queue-capacity:10000}") int queueCapacity,
+			@Value("${orders.pipeline.batch-size:100}") int batchSize,
+			@Value("${orders.pipeline.ticket-ttl-seconds:3600}") long ticketTtlSeconds) {
+		this.orderService = orderService;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.tickets = Caffeine.newBuilder()
+				.expireAfterWrite(ticketTtlSeconds, TimeUnit.SECONDS)
+				.build();
+		this.writer = new Thread(this::drain, "order-writer");
+		this.writer.setDaemon(true);
+	}
+
+	@PostConstruct
+	public void start() {
+		writer.start();
+	}
+
+	/**
+	 * Queues the cart for submission and returns its pending ticket.
+	 *
+	 * @throws OrderQueueFullException if the queue is full or the pipeline is shutting down
+	 */
+	public OrderTicket enqueue(Long cartId, String username) {
+		String id = UUID.randomUUID().toString();
+		OrderTicket ticket = OrderTicket.pending(id, User.normalizeUsername(username));
+		tickets.put(id, ticket);
+		if(!running || !queue.offer(new PendingOrder(id, cartId))) {
+			tickets.invalidate(id);
+			rejected.incrementAndGet();
+			throw new OrderQueueFullException("Order queue is full");
+		}
+		return ticket;
+	}
+
+	/**
+	 * Returns the ticket if it exists, has not expired and belongs to {@code username}.
+	 */
+	public OrderTicket status(String ticketId, String username) {
+		OrderTicket ticket = tickets.getIfPresent(ticketId);
+		return ticket != null && ticket.getOwner().equals(User.normalizeUsername(username)) ? ticket : null;
+	}
+
+	private void drain() {
+		List<PendingOrder> batch = new ArrayList<>(batchSize);
+		while(running || !queue.isEmpty()) {
+			try {
+				PendingOrder first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				write(batch);
+			} catch (InterruptedException e) {
+				log.error("Order writer interrupted with {} orders still queued", queue.size());
+				return;
+			} catch (RuntimeException e) {
+				log.error("Order writer failed on a batch of {}", batch.size(), e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Splits the batch into rounds with one order per cart, since a second submission of a cart
+	 * must see the cart the first one emptied.
+	 */
+	private void write(List<PendingOrder> batch) {
+		List<PendingOrder> remaining = batch;
+		while(!remaining.isEmpty()) {
+			Map<Long, PendingOrder> round = new LinkedHashMap<>();
+			List<PendingOrder> later = new ArrayList<>();
+			for(PendingOrder pending : remaining) {
+				if(round.putIfAbsent(pending.cartId, pending) != null) {
+					later.add(pending);
+				}
+			}
+			writeRound(round);
+			remaining = later;
+		}
+	}
+
+	private void writeRound(Map<Long, PendingOrder> round) {
+		Map<Long, UserOrder> orders;
+		try {
+			orders = orderService.submitAll(round.keySet());
+		} catch (RuntimeException e) {
+			if(round.size() == 1) {
+				log.error("Order for cart {} failed", round.keySet().iterator().next(), e);
+				round.values().forEach(this::fail);
+				return;
+			}
+			log.warn("Order batch of {} failed, writing its orders one at a time", round.size(), e);
+			round.forEach((cartId, pending) -> writeRound(Collections.singletonMap(cartId, pending)));
+			return;
+		}
+		round.forEach((cartId, pending) -> {
+			UserOrder order = orders.get(cartId);
+			if(order == null) {
+				fail(pending);
+			} else {
+				tickets.asMap().computeIfPresent(pending.ticketId, (id, ticket) -> ticket.completed(order.getId()));
+			}
+		});
+	}
+
+	private void fail(PendingOrder pending) {
+		failed.incrementAndGet();
+		tickets.asMap().computeIfPresent(pending.ticketId, (id, ticket) -> ticket.failed());
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		running = false;
+		writer.join(SHUTDOWN_MILLIS);
+		if(writer.isAlive()) {
+			writer.interrupt();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("orders.pipeline.queued", queue, BlockingQueue::size)
+				.description("Orders accepted but not yet written")
+				.register(registry);
+		FunctionCounter.builder("orders.pipeline.rejected", rejected, AtomicLong::get)
+				.description("Orders rejected because the queue was full")
+				.register(registry);
+		FunctionCounter.builder("orders.pipeline.failed", failed, AtomicLong::get)
+				.description("Queued orders that could not be written")
+				.register(registry);
+	}
+
+	private static final class PendingOrder {
+
+		private final String ticketId;
+
+		private final Long cartId;
+
+		private PendingOrder(String ticketId, Long cartId) {
+			this.ticketId = ticketId;
+			this.cartId = cartId;
+		}
+	}
+}
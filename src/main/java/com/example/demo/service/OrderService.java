@@ -0,0 +1,122 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+
+@Service
+public class OrderService {
+
+	public static final Logger log = LogManager.getLogger(OrderService.class);
+
+	private final CartRepository cartRepository;
+
+	private final OrderRepository orderRepository;
+
+	private final Outbox outbox;
+
+	private final StockLedger stockLedger;
+
+	private final PromotionEngine promotionEngine;
+
+	@Autowired
+	public OrderService(CartRepository cartRepository, OrderRepository orderRepository, Outbox outbox,
+			StockLedger stockLedger, PromotionEngine promotionEngine) {
+		this.cartRepository = cartRepository;
+		this.orderRepository = orderRepository;
+		this.outbox = outbox;
+		this.stockLedger = stockLedger;
+		this.promotionEngine = promotionEngine;
+	}
+
+	/**
+	 * Prices the cart with the current promotions, turns it into an order, reserves and deducts
+	 * stock for its tracked items, records its {@code order.created} outbox event and empties the
+	 * cart, all in one transaction. A stock shortfall fails the submission with
+	 * {@link InsufficientStockException}. The cart row is locked before it is read, so cart changes
+	 * made meanwhile wait and land in the emptied cart rather than being cleared without being
+	 * ordered.
+	 */
+	@Transactional
+	public Optional<UserOrder> submit(Long cartId) {
+		if(cartRepository.lock(cartId) == null) {
+			return Optional.empty();
+		}
+		Optional<Cart> found = cartRepository.findById(cartId);
+		if(!found.isPresent()) {
+			return Optional.empty();
+		}
+		Cart cart = found.get();
+		checkTotal(cart);
+		stockLedger.reserveForOrder(quantities(cart));
+		UserOrder order = UserOrder.createFromCart(promotionEngine.price(cart));
+		orderRepository.saveAndFlush(order);
+		orderRepository.insertLines(order);
+		outbox.orderCreated(Collections.singletonList(order));
+		cartRepository.clear(cartId, cart.getVersion() == null ? 0 : cart.getVersion());
+		return Optional.of(order);
+	}
+
+	/**
+	 * Batch form of {@link #submit(Long)}: every cart is locked (in id order), turned into an order
+	 * and emptied in a single transaction, and the orders and their lines are written as JDBC
+	 * batches. Carts that do not exist are missing from the result.
+	 */
+	@Transactional
+	public Map<Long, UserOrder> submitAll(Collection<Long> cartIds) {
+		List<Long> locked = new ArrayList<>();
+		for(Long cartId : new TreeSet<>(cartIds)) {
+			if(cartRepository.lock(cartId) != null) {
+				locked.add(cartId);
+			}
+		}
+		Map<Long, UserOrder> orders = new HashMap<>();
+		for(Cart cart : cartRepository.findAllById(locked)) {
+			checkTotal(cart);
+			stockLedger.reserveForOrder(quantities(cart));
+			orders.put(cart.getId(), UserOrder.createFromCart(promotionEngine.price(cart)));
+			cartRepository.clear(cart.getId(), cart.getVersion() == null ? 0 : cart.getVersion());
+		}
+		orderRepository.saveAll(orders.values());
+		orderRepository.flush();
+		orderRepository.insertLines(orders.values());
+		outbox.orderCreated(orders.values());
+		return orders;
+	}
+
+	/**
+	 * Cart totals are moved by each line change rather than recomputed, so they are checked against
+	 * the lines, already loaded under the cart lock, before the cart is charged.
+	 */
+	private static void checkTotal(Cart cart) {
+		if(!cart.isTotalConsistent()) {
+			log.warn("Cart {} total of {} minor units does not match its lines, which sum to {}",
+					cart.getId(), cart.getTotal().getMinorUnits(), cart.sumLinesMinor());
+		}
+	}
+
+	private static Map<Long, Integer> quantities(Cart cart) {
+		Map<Long, Integer> quantities = new HashMap<>();
+		for(CartLine line : cart.getLines()) {
+			quantities.put(line.getItem().getId(), line.getQuantity());
+		}
+		return quantities;
+	}
+}
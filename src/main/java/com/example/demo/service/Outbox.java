@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.OutboxEvent;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Records events in the {@code outbox_event} table. Writes must join the transaction of the
+ * change they describe, so the event exists exactly when the change does; {@link OutboxPublisher}
+ * hands them to the sink afterwards.
+ */
+@Component
+public class Outbox {
+
+	public static final String ORDER_CREATED = "order.created";
+
+	private final OutboxEventRepository outboxEventRepository;
+
+	private final ObjectMapper objectMapper;
+
+	@Autowired
+	public Outbox(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+		this.outboxEventRepository = outboxEventRepository;
+		this.objectMapper = objectMapper;
+	}
+
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void orderCreated(Collection<UserOrder> orders) {
+		List<OutboxEvent> events = new ArrayList<>(orders.size());
+		for(UserOrder order : orders) {
+			try {
+				events.add(new OutboxEvent(ORDER_CREATED, order.getId(),
+						objectMapper.writeValueAsString(new OrderCreatedEvent(order))));
+			} catch (JsonProcessingException e) {
+				throw new IllegalStateException("Cannot serialize order " + order.getId(), e);
+			}
+		}
+		outboxEventRepository.saveAll(events);
+	}
+}
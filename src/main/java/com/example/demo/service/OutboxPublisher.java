@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.OutboxEvent;
+import com.example.demo.model.persistence.repositories.OutboxEventRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Drains the outbox to the {@link OutboxSink} in id order, a batch at a time. Events are deleted
+ * only after the sink accepts them, so a failed or interrupted publish is retried on the next
+ * run: delivery is at least once, never at most once.
+ */
+@Component
+public class OutboxPublisher implements MeterBinder {
+
+	public static final Logger log = LogManager.getLogger(OutboxPublisher.class);
+
+	private final OutboxEventRepository outboxEventRepository;
+
+	private final OutboxSink sink;
+
+	private final int batchSize;
+
+	private final AtomicLong published = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	@Autowired
+	public OutboxPublisher(OutboxEventRepository outboxEventRepository, OutboxSink sink,
+			@Value("${outbox.publisher.batch-size:500}") int batchSize) {
+		this.outboxEventRepository = outboxEventRepository;
+		this.sink = sink;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Publishes until the outbox is empty or the sink fails. Returns the number of events published.
+	 */
+	@Scheduled(initialDelayString = "${outbox.publisher.flush-millis:1000}",
+			fixedDelayString = "${outbox.publisher.flush-millis:1000}")
+	public synchronized int publishPending() {
+		int total = 0;
+		List<OutboxEvent> batch;
+		do {
+			batch = outboxEventRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+			if(batch.isEmpty()) {
+				break;
+			}
+			try {
+				sink.publish(batch);
+			} catch (IOException | RuntimeException e) {
+				failures.incrementAndGet();
+				log.error("Publishing {} outbox events failed, will retry", batch.size(), e);
+				break;
+			}
+			List<Long> ids = new ArrayList<>(batch.size());
+			for(OutboxEvent event : batch) {
+				ids.add(event.getId());
+			}
+			outboxEventRepository.deleteByIds(ids);
+			published.addAndGet(batch.size());
+			total += batch.size();
+		} while(batch.size() == batchSize);
+		return total;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("outbox.published", published, AtomicLong::get)
+				.description("Outbox events accepted by the sink")
+				.register(registry);
+		FunctionCounter.builder("outbox.publish.failures", failures, AtomicLong::get)
+				.description("Outbox batches the sink rejected")
+				.register(registry);
+	}
+}
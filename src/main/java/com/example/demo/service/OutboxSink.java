@@ -0,0 +1,15 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.example.demo.model.persistence.OutboxEvent;
+
+/**
+ * Destination of published outbox events. {@link #publish} must return only once the events are
+ * durably accepted; throwing leaves them in the outbox to be offered again, so a sink can see the
+ * same event more than once.
+ */
+public interface OutboxSink {
+	void publish(List<OutboxEvent> events) throws IOException;
+}
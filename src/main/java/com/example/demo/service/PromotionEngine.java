@@ -0,0 +1,125 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Cart;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Prices carts with the current {@link PromotionPlan}. A new rule set is compiled in full before
+ * it replaces the current plan in one reference swap, so readers never wait and never see a
+ * half-installed set, and a rule set that fails to compile leaves the running plan in place.
+ *
+ * <p>When {@code promotions.rules-path} names a JSON file of {@link PromotionRule}s, the file is
+ * loaded at startup and reloaded whenever its modification time changes.
+ */
+@Component
+public class PromotionEngine implements MeterBinder {
+
+	public static final Logger log = LogManager.getLogger(PromotionEngine.class);
+
+	private static final TypeReference<List<PromotionRule>> RULES = new TypeReference<List<PromotionRule>>() {
+	};
+
+	private final AtomicReference<PromotionPlan> plan = new AtomicReference<>(PromotionPlan.EMPTY);
+
+	private final ObjectMapper objectMapper;
+
+	private final Path rulesPath;
+
+	private FileTime rulesModified;
+
+	private final AtomicLong installs = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	@Autowired
+	public PromotionEngine(ObjectMapper objectMapper, @Value("${promotions.rules-path:}") String rulesPath) {
+		this.objectMapper = objectMapper;
+		this.rulesPath = rulesPath.isEmpty() ? null : Paths.get(rulesPath);
+	}
+
+	public PromotionPlan getPlan() {
+		return plan.get();
+	}
+
+	/**
+	 * Compiles the rules and makes them the current plan.
+	 *
+	 * @throws IllegalArgumentException if a rule is invalid; the current plan is kept
+	 */
+	public PromotionPlan install(List<PromotionRule> rules) {
+		PromotionPlan compiled;
+		try {
+			compiled = PromotionPlan.compile(rules);
+		} catch (IllegalArgumentException e) {
+			rejected.incrementAndGet();
+			throw e;
+		}
+		plan.set(compiled);
+		installs.incrementAndGet();
+		return compiled;
+	}
+
+	/**
+	 * Sets the line and cart discounts on the cart and returns it.
+	 */
+	public Cart price(Cart cart) {
+		plan.get().apply(cart);
+		return cart;
+	}
+
+	@PostConstruct
+	@Scheduled(fixedDelayString = "${promotions.reload-millis:5000}")
+	public synchronized void reload() {
+		if(rulesPath == null || !Files.isRegularFile(rulesPath)) {
+			return;
+		}
+		try {
+			FileTime modified = Files.getLastModifiedTime(rulesPath);
+			if(modified.equals(rulesModified)) {
+				return;
+			}
+			rulesModified = modified;
+			PromotionPlan installed = install(objectMapper.readValue(rulesPath.toFile(), RULES));
+			log.info("Installed {} promotion rules from {}", installed.getRuleCount(), rulesPath);
+		} catch (IOException | IllegalArgumentException e) {
+			log.error("Keeping the current promotions, cannot load {}: {}", rulesPath, e.getMessage());
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("promotions.rules", plan, current -> current.get().getRuleCount())
+				.description("Promotion rules in the current plan")
+				.register(registry);
+		FunctionCounter.builder("promotions.installs", installs, AtomicLong::get)
+				.description("Promotion rule sets compiled and installed")
+				.register(registry);
+		FunctionCounter.builder("promotions.rejected", rejected, AtomicLong::get)
+				.description("Promotion rule sets refused because a rule was invalid")
+				.register(registry);
+	}
+}
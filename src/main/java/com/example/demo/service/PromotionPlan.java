@@ -0,0 +1,239 @@
+package com.example.demo.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Money;
+
+/**
+ * A set of {@link PromotionRule}s compiled for evaluation: line rules are indexed by item id and
+ * percentages are held as integer basis points, so pricing a cart is one map lookup and a little
+ * long arithmetic per line. Plans are immutable and can be shared by any number of threads.
+ *
+ * <p>Rules do not stack: each line gets the largest discount any of its rules offers, and the
+ * cart gets the largest cart rule it qualifies for, taken off the subtotal left after line
+ * discounts. Fractions of a minor unit are always rounded in the customer's disfavour, so
+ * discounts never exceed what the rules promise.
+ */
+public final class PromotionPlan {
+
+	private static final long BASIS_POINTS = 10_000;
+
+	private static final LineRule[] NO_RULES = new LineRule[0];
+
+	public static final PromotionPlan EMPTY = compile(Collections.emptyList());
+
+	private final Map<Long, LineRule[]> itemRules;
+
+	private final LineRule[] everyItemRules;
+
+	// parallel arrays, ordered by threshold descending, so the first match is the best
+	private final long[] cartThresholdsMinor;
+
+	private final long[] cartBasisPoints;
+
+	private final int ruleCount;
+
+	private final long fingerprint;
+
+	private PromotionPlan(Map<Long, LineRule[]> itemRules, LineRule[] everyItemRules,
+			long[] cartThresholdsMinor, long[] cartBasisPoints, int ruleCount, long fingerprint) {
+		this.itemRules = itemRules;
+		this.everyItemRules = everyItemRules;
+		this.cartThresholdsMinor = cartThresholdsMinor;
+		this.cartBasisPoints = cartBasisPoints;
+		this.ruleCount = ruleCount;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if any rule is incomplete or out of range; nothing is
+	 *         compiled in that case
+	 */
+	public static PromotionPlan compile(List<PromotionRule> rules) {
+		Map<Long, List<LineRule>> byItem = new HashMap<>();
+		List<LineRule> everyItem = new ArrayList<>();
+		List<long[]> cartRules = new ArrayList<>();
+		long fingerprint = Fnv1a.OFFSET_BASIS;
+		for(PromotionRule rule : rules) {
+			if(rule == null || rule.getType() == null) {
+				throw new IllegalArgumentException("Promotion rule has no type");
+			}
+			fingerprint = fingerprint(fingerprint, rule);
+			if(rule.getType() == PromotionRule.Type.CART_PERCENTAGE) {
+				if(rule.getMinSubtotal() == null || rule.getMinSubtotal().signum() < 0) {
+					throw new IllegalArgumentException("Cart promotion needs a non-negative minSubtotal");
+				}
+				cartRules.add(new long[] {Money.toMinorUnits(rule.getMinSubtotal(), Money.DEFAULT_CURRENCY),
+						basisPoints(rule.getPercent())});
+				continue;
+			}
+			LineRule compiled = compileLineRule(rule);
+			if(rule.getItemId() == null) {
+				everyItem.add(compiled);
+			} else {
+				byItem.computeIfAbsent(rule.getItemId(), id -> new ArrayList<>()).add(compiled);
+			}
+		}
+		Map<Long, LineRule[]> itemRules = new HashMap<>(byItem.size() * 2);
+		byItem.forEach((itemId, itemRuleList) -> {
+			// rules for every item apply to this one too; folding them in keeps lookup to one get
+			List<LineRule> all = new ArrayList<>(itemRuleList);
+			all.addAll(everyItem);
+			itemRules.put(itemId, all.toArray(NO_RULES));
+		});
+		cartRules.sort(Comparator.comparingLong((long[] cartRule) -> cartRule[0]).reversed());
+		long[] thresholds = new long[cartRules.size()];
+		long[] basisPoints = new long[cartRules.size()];
+		for(int i = 0; i < cartRules.size(); i++) {
+			thresholds[i] = cartRules.get(i)[0];
+			basisPoints[i] = cartRules.get(i)[1];
+		}
+		return new PromotionPlan(Collections.unmodifiableMap(itemRules), everyItem.toArray(NO_RULES),
+				thresholds, basisPoints, rules.size(), fingerprint);
+	}
+
+	public int getRuleCount() {
+		return ruleCount;
+	}
+
+	/**
+	 * A hash of the rules the plan was compiled from. Plans compiled from the same rules, in
+	 * this or any other process, share it, so it can stand in for the plan in cache keys and
+	 * ETags.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Sets the discount of every line and of the cart as a whole. The cart's own running total is
+	 * left untouched.
+	 */
+	public void apply(Cart cart) {
+		long lineDiscounts = 0;
+		for(CartLine line : cart.getLines()) {
+			long discount = lineDiscount(line.getItem().getId(), line.getUnitPriceMinor(), line.getQuantity());
+			line.setDiscountMinor(discount);
+			lineDiscounts += discount;
+		}
+		long subtotal = cart.getTotal().getMinorUnits() - lineDiscounts;
+		cart.setDiscountMinor(lineDiscounts + cartDiscount(subtotal));
+	}
+
+	public long lineDiscount(Long itemId, long unitPriceMinor, int quantity) {
+		if(quantity <= 0) {
+			return 0;
+		}
+		LineRule[] rules = itemRules.get(itemId);
+		if(rules == null) {
+			rules = everyItemRules;
+		}
+		long best = 0;
+		for(LineRule rule : rules) {
+			best = Math.max(best, rule.discount(unitPriceMinor, quantity));
+		}
+		return best;
+	}
+
+	public long cartDiscount(long subtotalMinor) {
+		for(int i = 0; i < cartThresholdsMinor.length; i++) {
+			if(subtotalMinor >= cartThresholdsMinor[i]) {
+				return percentOf(subtotalMinor, cartBasisPoints[i]);
+			}
+		}
+		return 0;
+	}
+
+	private static LineRule compileLineRule(PromotionRule rule) {
+		switch(rule.getType()) {
+		case PERCENTAGE:
+			long basisPoints = basisPoints(rule.getPercent());
+			return (unitPriceMinor, quantity) -> percentOf(Math.multiplyExact(unitPriceMinor, (long) quantity), basisPoints);
+		case BUY_X_GET_Y:
+			if(rule.getItemId() == null || rule.getBuy() <= 0 || rule.getGet() <= 0) {
+				throw new IllegalArgumentException("Buy-X-get-Y promotion needs an itemId and positive buy and get");
+			}
+			long group = (long) rule.getBuy() + rule.getGet();
+			long free = rule.getGet();
+			return (unitPriceMinor, quantity) -> Math.multiplyExact(unitPriceMinor, quantity / group * free);
+		case TIERED:
+			return compileTiers(rule);
+		default:
+			throw new IllegalArgumentException("Unsupported promotion type " + rule.getType());
+		}
+	}
+
+	private static LineRule compileTiers(PromotionRule rule) {
+		if(rule.getTiers() == null || rule.getTiers().isEmpty()) {
+			throw new IllegalArgumentException("Tiered promotion needs at least one tier");
+		}
+		List<PromotionRule.Tier> tiers = new ArrayList<>(rule.getTiers());
+		tiers.sort(Comparator.comparingInt(PromotionRule.Tier::getMinQuantity).reversed());
+		int[] minQuantities = new int[tiers.size()];
+		long[] basisPoints = new long[tiers.size()];
+		for(int i = 0; i < tiers.size(); i++) {
+			if(tiers.get(i).getMinQuantity() <= 0) {
+				throw new IllegalArgumentException("Promotion tier needs a positive minQuantity");
+			}
+			minQuantities[i] = tiers.get(i).getMinQuantity();
+			basisPoints[i] = basisPoints(tiers.get(i).getPercent());
+		}
+		return (unitPriceMinor, quantity) -> {
+			for(int i = 0; i < minQuantities.length; i++) {
+				if(quantity >= minQuantities[i]) {
+					return percentOf(Math.multiplyExact(unitPriceMinor, (long) quantity), basisPoints[i]);
+				}
+			}
+			return 0;
+		};
+	}
+
+	private static long basisPoints(BigDecimal percent) {
+		if(percent == null || percent.signum() <= 0 || percent.compareTo(BigDecimal.valueOf(100)) > 0) {
+			throw new IllegalArgumentException("Promotion percent must be above 0 and at most 100, was " + percent);
+		}
+		try {
+			return percent.movePointRight(2).longValueExact();
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Promotion percent has more than two decimals: " + percent);
+		}
+	}
+
+	private static long fingerprint(long hash, PromotionRule rule) {
+		hash = Fnv1a.mix(hash, rule.getType().ordinal());
+		hash = Fnv1a.mix(hash, rule.getItemId() == null ? -1 : rule.getItemId());
+		hash = Fnv1a.mix(hash, decimalHash(rule.getPercent()));
+		hash = Fnv1a.mix(hash, rule.getBuy());
+		hash = Fnv1a.mix(hash, rule.getGet());
+		hash = Fnv1a.mix(hash, decimalHash(rule.getMinSubtotal()));
+		if(rule.getTiers() != null) {
+			for(PromotionRule.Tier tier : rule.getTiers()) {
+				hash = Fnv1a.mix(hash, tier.getMinQuantity());
+				hash = Fnv1a.mix(hash, decimalHash(tier.getPercent()));
+			}
+		}
+		return hash;
+	}
+
+	private static long decimalHash(BigDecimal value) {
+		return value == null ? 0 : value.stripTrailingZeros().hashCode();
+	}
+
+	private static long percentOf(long amountMinor, long basisPoints) {
+		return Math.multiplyExact(amountMinor, basisPoints) / BASIS_POINTS;
+	}
+
+	@FunctionalInterface
+	private interface LineRule {
+
+		long discount(long unitPriceMinor, int quantity);
+	}
+}
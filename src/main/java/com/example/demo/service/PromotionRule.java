@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One configured promotion, as read from the rules file. Rules are plain data; they are checked
+ * and turned into something fast to evaluate by {@link PromotionPlan#compile(List)}.
+ *
+ * <ul>
+ * <li>{@code PERCENTAGE}: {@code percent} off the line for {@code itemId}, or off every line when
+ * {@code itemId} is absent.</li>
+ * <li>{@code BUY_X_GET_Y}: of every {@code buy + get} units of {@code itemId}, {@code get} are free.</li>
+ * <li>{@code TIERED}: the highest tier whose {@code minQuantity} the line reaches gives its
+ * {@code percent} off the line.</li>
+ * <li>{@code CART_PERCENTAGE}: {@code percent} off the cart once its subtotal after line discounts
+ * reaches {@code minSubtotal}.</li>
+ * </ul>
+ */
+public class PromotionRule {
+
+	public enum Type {
+		PERCENTAGE, BUY_X_GET_Y, TIERED, CART_PERCENTAGE
+	}
+
+	@JsonProperty
+	private Type type;
+
+	@JsonProperty
+	private Long itemId;
+
+	@JsonProperty
+	private BigDecimal percent;
+
+	@JsonProperty
+	private int buy;
+
+	@JsonProperty
+	private int get;
+
+	@JsonProperty
+	private List<Tier> tiers;
+
+	@JsonProperty
+	private BigDecimal minSubtotal;
+
+	public static PromotionRule percentage(Long itemId, String percent) {
+		PromotionRule rule = new PromotionRule();
+		rule.setType(Type.PERCENTAGE);
+		rule.setItemId(itemId);
+		rule.setPercent(new BigDecimal(percent));
+		return rule;
+	}
+
+	public static PromotionRule buyXGetY(Long itemId, int buy, int get) {
+		PromotionRule rule = new PromotionRule();
+		rule.setType(Type.BUY_X_GET_Y);
+		rule.setItemId(itemId);
+		rule.setBuy(buy);
+		rule.setGet(get);
+		return rule;
+	}
+
+	public static PromotionRule tiered(Long itemId, Tier... tiers) {
+		PromotionRule rule = new PromotionRule();
+		rule.setType(Type.TIERED);
+		rule.setItemId(itemId);
+		rule.setTiers(Arrays.asList(tiers));
+		return rule;
+	}
+
+	public static PromotionRule cartPercentage(String minSubtotal, String percent) {
+		PromotionRule rule = new PromotionRule();
+		rule.setType(Type.CART_PERCENTAGE);
+		rule.setMinSubtotal(new BigDecimal(minSubtotal));
+		rule.setPercent(new BigDecimal(percent));
+		return rule;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public void setType(Type type) {
+		this.type = type;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public void setItemId(Long itemId) {
+		this.itemId = itemId;
+	}
+
+	public BigDecimal getPercent() {
+		return percent;
+	}
+
+	public void setPercent(BigDecimal percent) {
+		this.percent = percent;
+	}
+
+	public int getBuy() {
+		return buy;
+	}
+
+	public void setBuy(int buy) {
+		this.buy = buy;
+	}
+
+	public int getGet() {
+		return get;
+	}
+
+	public void setGet(int get) {
+		this.get = get;
+	}
+
+	public List<Tier> getTiers() {
+		return tiers;
+	}
+
+	public void setTiers(List<Tier> tiers) {
+		this.tiers = tiers;
+	}
+
+	public BigDecimal getMinSubtotal() {
+		return minSubtotal;
+	}
+
+	public void setMinSubtotal(BigDecimal minSubtotal) {
+		this.minSubtotal = minSubtotal;
+	}
+
+	public static class Tier {
+
+		@JsonProperty
+		private int minQuantity;
+
+		@JsonProperty
+		private BigDecimal percent;
+
+		public Tier() {
+		}
+
+		public Tier(int minQuantity, String percent) {
+			this.minQuantity = minQuantity;
+			this.percent = new BigDecimal(percent);
+		}
+
+		public int getMinQuantity() {
+			return minQuantity;
+		}
+
+		public void setMinQuantity(int minQuantity) {
+			this.minQuantity = minQuantity;
+		}
+
+		public BigDecimal getPercent() {
+			return percent;
+		}
+
+		public void setPercent(BigDecimal percent) {
+			this.percent = percent;
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.persistence.ItemStock;
+import com.example.demo.model.persistence.repositories.ItemStockRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-memory view of available stock, one {@link AtomicLong} per tracked item, loaded from
+ * {@code item_stock} on first use. Reservations take units with a compare-and-set loop, so
+ * concurrent orders for the same hot item never wait on a lock, and each reservation becomes a
+ * hold that is confirmed or released when the order's transaction ends.
+ *
+ * <p>The database stays authoritative: an order also deducts its units from {@code item_stock}
+ * with one guarded update per item, so an instance whose counts have drifted (another instance
+ * sold the stock, say) fails the order instead of overselling, and reloads the item's count.
+ */
+@Component
+public class StockLedger implements MeterBinder {
+
+	private static final AtomicLong UNTRACKED = new AtomicLong();
+
+	private final ItemStockRepository itemStockRepository;
+
+	private final ConcurrentMap<Long, AtomicLong> available = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<Long, Hold> holds = new ConcurrentHashMap<>();
+
+	private final AtomicLong holdIds = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	// bumped by every committed addStock, so a load that overlapped one can tell
+	private final AtomicLong stockChanges = new AtomicLong();
+
+	@Autowired
+	public StockLedger(ItemStockRepository itemStockRepository) {
+		this.itemStockRepository = itemStockRepository;
+	}
+
+	/**
+	 * Units of the item not yet sold or held, or {@code null} if the item is not stock-tracked.
+	 */
+	public Long available(Long itemId) {
+		AtomicLong units = units(itemId);
+		return units == UNTRACKED ? null : units.get();
+	}
+
+	/**
+	 * Holds every requested quantity of tracked items, or none of them. The hold lists the items in
+	 * id order, which is the order {@link #reserveForOrder(Map)} locks their {@code item_stock} rows
+	 * in, so two orders for the same items never wait on each other's rows crosswise.
+	 *
+	 * @throws InsufficientStockException naming the first item that is short
+	 */
+	public Hold reserve(Map<Long, Integer> quantities) {
+		List<Taken> taken = new ArrayList<>(quantities.size());
+		for(Map.Entry<Long, Integer> quantity : new TreeMap<>(quantities).entrySet()) {
+			AtomicLong units = units(quantity.getKey());
+			if(units == UNTRACKED || quantity.getValue() <= 0) {
+				continue;
+			}
+			if(!take(units, quantity.getValue())) {
+				giveBack(taken);
+				rejected.incrementAndGet();
+				throw new InsufficientStockException(quantity.getKey());
+			}
+			taken.add(new Taken(quantity.getKey(), units, quantity.getValue()));
+		}
+		Hold hold = new Hold(holdIds.incrementAndGet(), taken);
+		if(!taken.isEmpty()) {
+			holds.put(hold.id, hold);
+		}
+		return hold;
+	}
+
+	/**
+	 * The units were sold; forget the hold without returning them.
+	 */
+	public void confirm(Hold hold) {
+		holds.remove(hold.id);
+	}
+
+	/**
+	 * Returns the held units, unless the hold was already confirmed or released.
+	 */
+	public void release(Hold hold) {
+		if(holds.remove(hold.id) != null) {
+			giveBack(hold.taken);
+		}
+	}
+
+	/**
+	 * Reserves the quantities for an order being written in the current transaction and deducts
+	 * them from {@code item_stock}. The hold is confirmed if the transaction commits and released
+	 * if it rolls back.
+	 *
+	 * @throws InsufficientStockException if either the ledger or the database is short
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void reserveForOrder(Map<Long, Integer> quantities) {
+		Hold hold = reserve(quantities);
+		if(hold.taken.isEmpty()) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				if(status == TransactionSynchronization.STATUS_COMMITTED) {
+					confirm(hold);
+				} else {
+					release(hold);
+				}
+			}
+		});
+		for(Taken taken : hold.taken) {
+			if(itemStockRepository.deduct(taken.itemId, taken.quantity) == 0) {
+				available.remove(taken.itemId, taken.units);
+				rejected.incrementAndGet();
+				throw new InsufficientStockException(taken.itemId);
+			}
+		}
+	}
+
+	/**
+	 * Adds units of an item, starting to track it if it was not tracked before.
+	 */
+	@Transactional
+	public void addStock(Long itemId, long quantity) {
+		if(itemStockRepository.add(itemId, quantity) == 0) {
+			itemStockRepository.save(new ItemStock(itemId, quantity));
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				stockChanges.incrementAndGet();
+				AtomicLong units = available.get(itemId);
+				if(units == null || units == UNTRACKED) {
+					available.remove(itemId);
+				} else {
+					units.addAndGet(quantity);
+				}
+			}
+		});
+	}
+
+	/**
+	 * The item's counter, loaded from the database on first use. The load runs outside the map so
+	 * no bin stays locked across the query; a load that raced a stock change is dropped and retried.
+	 */
+	private AtomicLong units(Long itemId) {
+		while(true) {
+			AtomicLong units = available.get(itemId);
+			if(units != null) {
+				return units;
+			}
+			long seen = stockChanges.get();
+			AtomicLong loaded = itemStockRepository.findById(itemId)
+					.map(stock -> new AtomicLong(stock.getQuantity()))
+					.orElse(UNTRACKED);
+			units = available.putIfAbsent(itemId, loaded);
+			if(units != null) {
+				return units;
+			}
+			if(stockChanges.get() == seen) {
+				return loaded;
+			}
+			available.remove(itemId, loaded);
+		}
+	}
+
+	private static boolean take(AtomicLong units, long quantity) {
+		long current;
+		do {
+			current = units.get();
+			if(current < quantity) {
+				return false;
+			}
+		} while(!units.compareAndSet(current, current - quantity));
+		return true;
+	}
+
+	private static void giveBack(List<Taken> taken) {
+		for(Taken units : taken) {
+			units.units.addAndGet(units.quantity);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("stock.holds", holds, Map::size)
+				.description("Stock reservations not yet confirmed or released")
+				.register(registry);
+		FunctionCounter.builder("stock.rejected", rejected, AtomicLong::get)
+				.description("Reservations refused for lack of stock")
+				.register(registry);
+	}
+
+	public static final class Hold {
+
+		private final long id;
+
+		private final List<Taken> taken;
+
+		private Hold(long id, List<Taken> taken) {
+			this.id = id;
+			this.taken = Collections.unmodifiableList(taken);
+		}
+	}
+
+	private static final class Taken {
+
+		private final Long itemId;
+
+		private final AtomicLong units;
+
+		private final long quantity;
+
+		private Taken(Long itemId, AtomicLong units, long quantity) {
+			this.itemId = itemId;
+			this.units = units;
+			this.quantity = quantity;
+		}
+	}
+}
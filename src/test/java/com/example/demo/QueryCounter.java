@@ -0,0 +1,30 @@
+package com.example.demo;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueryCounter {
+
+    private final Statistics statistics;
+
+    public QueryCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    public long count(Runnable work) {
+        statistics.clear();
+        work.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    public void assertSameCount(String message, Runnable small, Runnable large) {
+        long expected = count(small);
+        long actual = count(large);
+        assertEquals(message + " (N+1 query regression?)", expected, actual);
+    }
+}
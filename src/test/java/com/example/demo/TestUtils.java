@@ -1,6 +1,19 @@
 package com.example.demo;
 
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.AuthenticatedUser;
+import org.springframework.transaction.support.TransactionTemplate;
+
 import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 public class TestUtils {
 
@@ -21,4 +34,69 @@ public class TestUtils {
         }
 
     }
+
+    /**
+     * Adds to an in-memory cart the way CartRepository.addItem does in the database: a new line
+     * takes the item's current price and the total moves by exactly the amount added.
+     */
+    public static void addItem(Cart cart, Item item, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        List<CartLine> lines = new ArrayList<>(cart.getLines());
+        CartLine line = cart.getLine(item);
+        if (line == null) {
+            line = new CartLine(cart, item);
+            lines.add(line);
+        }
+        line.setQuantity(line.getQuantity() + quantity);
+        cart.setLines(lines);
+        cart.setTotal(cart.getTotal().plus(line.getUnitPriceMinor() * quantity));
+    }
+
+    /**
+     * Removes at most the quantity the line holds, dropping the line when it reaches zero.
+     */
+    public static void removeItem(Cart cart, Item item, int quantity) {
+        CartLine line = cart.getLine(item);
+        if (line == null || quantity <= 0) {
+            return;
+        }
+        int removed = Math.min(quantity, line.getQuantity());
+        line.setQuantity(line.getQuantity() - removed);
+        if (line.getQuantity() == 0) {
+            List<CartLine> lines = new ArrayList<>(cart.getLines());
+            lines.remove(line);
+            cart.setLines(lines);
+        }
+        cart.setTotal(cart.getTotal().minus(line.getUnitPriceMinor() * removed));
+    }
+
+    public static Item item(Long id, String name, String price) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setPrice(new BigDecimal(price));
+        item.setDescription("A widget");
+        return item;
+    }
+
+    /**
+     * Saves a user with an empty cart, as UserController.createUser does, under a unique name
+     * starting with the given prefix.
+     */
+    public static AuthenticatedUser createUser(TransactionTemplate transactionTemplate, UserRepository userRepository,
+                                               CartRepository cartRepository, String usernamePrefix) {
+        String username = usernamePrefix + UUID.randomUUID();
+        return transactionTemplate.execute(status -> {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("not-a-real-hash");
+            Cart cart = new Cart();
+            cartRepository.save(cart);
+            user.setCart(cart);
+            userRepository.save(user);
+            return new AuthenticatedUser(user.getId(), cart.getId(), username);
+        });
+    }
 }
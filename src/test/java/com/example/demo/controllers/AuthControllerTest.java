@@ -0,0 +1,131 @@
+package com.example.demo.controllers;
+
+import com.example.demo.TestUtils;
+import com.example.demo.security.JWTTokenIssuer;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenRevocationList;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AuthControllerTest {
+    private AuthController authController;
+    private final JWTTokenIssuer tokenIssuer = new JWTTokenIssuer();
+    private final JWTTokenVerifier tokenVerifier = new JWTTokenVerifier(100);
+    private final TokenRevocationList revocationList = new TokenRevocationList(1 << 12);
+
+    @Before
+    public void setUp() {
+        authController = new AuthController();
+        TestUtils.injectObject(authController, "tokenIssuer", tokenIssuer);
+        TestUtils.injectObject(authController, "tokenVerifier", tokenVerifier);
+        TestUtils.injectObject(authController, "revocationList", revocationList);
+    }
+
+    @Test
+    public void refresh_rotatesRefreshToken() {
+        MockHttpServletResponse login = new MockHttpServletResponse();
+        tokenIssuer.issue("test", 1L, 7L, login);
+        String refreshToken = login.getHeader(SecurityConstants.REFRESH_HEADER_STRING);
+
+        MockHttpServletResponse refreshed = new MockHttpServletResponse();
+        ResponseEntity<Void> response = authController.refresh(refreshToken, refreshed);
+        assertEquals(200, response.getStatusCode().value());
+        String accessToken = refreshed.getHeader(SecurityConstants.HEADER_STRING);
+        assertNotNull(accessToken);
+        JWTTokenVerifier.VerifiedToken access = tokenVerifier.verify(accessToken.replace(SecurityConstants.TOKEN_PREFIX, ""));
+        assertTrue(access.isAccessToken());
+        assertEquals(Long.valueOf(1L), access.getUserId());
+        assertEquals(Long.valueOf(7L), access.getCartId());
+        assertNotEquals(refreshToken, refreshed.getHeader(SecurityConstants.REFRESH_HEADER_STRING));
+
+        response = authController.refresh(refreshToken, new MockHttpServletResponse());
+        assertEquals(401, response.getStatusCode().value());
+    }
+
+    @Test
+    public void refresh_concurrentlyWithSameToken_onlyOneSucceeds() throws Exception {
+        MockHttpServletResponse login = new MockHttpServletResponse();
+        tokenIssuer.issue("test", 1L, 7L, login);
+        String refreshToken = login.getHeader(SecurityConstants.REFRESH_HEADER_STRING);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 50; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                String token = refreshToken;
+                Callable<MockHttpServletResponse> refresh = () -> {
+                    MockHttpServletResponse refreshed = new MockHttpServletResponse();
+                    start.await();
+                    refreshed.setStatus(authController.refresh(token, refreshed).getStatusCode().value());
+                    return refreshed;
+                };
+                List<Future<MockHttpServletResponse>> results = new ArrayList<>();
+                results.add(executor.submit(refresh));
+                results.add(executor.submit(refresh));
+                start.countDown();
+
+                int succeeded = 0;
+                for (Future<MockHttpServletResponse> result : results) {
+                    MockHttpServletResponse refreshed = result.get();
+                    if (refreshed.getStatus() == 200) {
+                        succeeded++;
+                        refreshToken = refreshed.getHeader(SecurityConstants.REFRESH_HEADER_STRING);
+                    } else {
+                        assertEquals(401, refreshed.getStatus());
+                        assertNull(refreshed.getHeader(SecurityConstants.REFRESH_HEADER_STRING));
+                    }
+                }
+                assertEquals(1, succeeded);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void refresh_rejectsAccessToken() {
+        MockHttpServletResponse login = new MockHttpServletResponse();
+        tokenIssuer.issue("test", 1L, 7L, login);
+        String accessToken = login.getHeader(SecurityConstants.HEADER_STRING).replace(SecurityConstants.TOKEN_PREFIX, "");
+
+        ResponseEntity<Void> response = authController.refresh(accessToken, new MockHttpServletResponse());
+        assertEquals(401, response.getStatusCode().value());
+    }
+
+    @Test
+    public void logout_revokesBothTokens() {
+        MockHttpServletResponse login = new MockHttpServletResponse();
+        tokenIssuer.issue("test", 1L, 7L, login);
+        JWTTokenVerifier.VerifiedToken access = tokenVerifier.verify(
+                login.getHeader(SecurityConstants.HEADER_STRING).replace(SecurityConstants.TOKEN_PREFIX, ""));
+        String refreshToken = login.getHeader(SecurityConstants.REFRESH_HEADER_STRING);
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken("test", null, new ArrayList<>());
+        authentication.setDetails(access);
+        assertFalse(revocationList.isRevoked(access));
+
+        ResponseEntity<Void> response = authController.logout(authentication, refreshToken);
+
+        assertEquals(204, response.getStatusCode().value());
+        assertTrue(revocationList.isRevoked(access));
+        assertTrue(revocationList.isRevoked(tokenVerifier.verify(refreshToken)));
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.demo.controllers;
+
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.ItemStockRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartLineChange;
+import com.example.demo.model.requests.ModifyCartLinesRequest;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.OrderLineResponse;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.StockLedger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Hammers one cart from many threads and checks that no update is lost.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CartConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemStockRepository itemStockRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void concurrentCartUpdates_areNotLost() throws Exception {
+        Item round = saveItem("Concurrent Round Widget", "2.99");
+        Item square = saveItem("Concurrent Square Widget", "1.99");
+        AuthenticatedUser principal = createUser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    assertEquals(200, cartController.addTocart(request(principal, round, 1), principal).getStatusCodeValue());
+                    assertEquals(200, cartController.addTocart(request(principal, square, 2), principal).getStatusCodeValue());
+                    if (i % 2 == 0) {
+                        assertEquals(200, cartController.removeFromcart(request(principal, square, 1), principal).getStatusCodeValue());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int roundQuantity = THREADS * ROUNDS;
+        int squareQuantity = THREADS * (2 * ROUNDS - ROUNDS / 2);
+        transactionTemplate.execute(status -> {
+            Cart cart = cartRepository.findById(principal.getCartId()).get();
+            assertEquals(2, cart.getLines().size());
+            assertEquals(roundQuantity, cart.getLine(round).getQuantity());
+            assertEquals(squareQuantity, cart.getLine(square).getQuantity());
+            assertEquals(roundQuantity * 299L + squareQuantity * 199L, cart.getTotal().getMinorUnits());
+            assertEquals(cartRepository.sumLineTotals(cart.getId()), cart.getTotal().getMinorUnits());
+            return null;
+        });
+    }
+
+    @Test
+    public void concurrentBatches_inOppositeOrder_doNotDeadlockOrLoseUpdates() throws Exception {
+        Item round = saveItem("Batched Round Widget", "2.99");
+        Item square = saveItem("Batched Square Widget", "1.99");
+        AuthenticatedUser principal = createUser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean roundFirst = t % 2 == 0;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    ModifyCartLinesRequest request = new ModifyCartLinesRequest();
+                    request.setUsername(principal.getUsername());
+                    if (roundFirst) {
+                        request.setLines(Arrays.asList(new CartLineChange(round.getId(), 1), new CartLineChange(square.getId(), 2)));
+                    } else {
+                        request.setLines(Arrays.asList(new CartLineChange(square.getId(), 2), new CartLineChange(round.getId(), 1)));
+                    }
+                    assertEquals(200, cartController.modifyCart(request, principal).getStatusCodeValue());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        transactionTemplate.execute(status -> {
+            Cart cart = cartRepository.findById(principal.getCartId()).get();
+            assertEquals(THREADS * ROUNDS, cart.getLine(round).getQuantity());
+            assertEquals(2 * THREADS * ROUNDS, cart.getLine(square).getQuantity());
+            assertEquals(cartRepository.sumLineTotals(cart.getId()), cart.getTotal().getMinorUnits());
+            return null;
+        });
+    }
+
+    @Test
+    public void submitsRacingAdds_neitherLoseNorDuplicateItems() throws Exception {
+        Item round = saveItem("Submitted Round Widget", "2.99");
+        AuthenticatedUser principal = createUser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean submitter = t % 4 == 0;
+            results.add(executor.submit(() -> {
+                start.await();
+                int ordered = 0;
+                for (int i = 0; i < ROUNDS; i++) {
+                    if (!submitter) {
+                        assertEquals(200, cartController.addTocart(request(principal, round, 1), principal).getStatusCodeValue());
+                        continue;
+                    }
+                    ResponseEntity<OrderResponse> response = orderController.submit(principal.getUsername(), null, principal);
+                    if (response.getStatusCodeValue() == 200) {
+                        for (OrderLineResponse line : response.getBody().getLines()) {
+                            ordered += line.getQuantity();
+                        }
+                    } else {
+                        assertEquals(409, response.getStatusCodeValue());
+                    }
+                }
+                return ordered;
+            }));
+        }
+        start.countDown();
+        int ordered = 0;
+        for (Future<Integer> result : results) {
+            ordered += result.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int added = (THREADS - THREADS / 4) * ROUNDS;
+        int stillInCart = transactionTemplate.execute(status -> {
+            Cart cart = cartRepository.findById(principal.getCartId()).get();
+            assertEquals(cartRepository.sumLineTotals(cart.getId()), cart.getTotal().getMinorUnits());
+            CartLine line = cart.getLine(round);
+            return line == null ? 0 : line.getQuantity();
+        });
+        assertEquals(added, ordered + stillInCart);
+    }
+
+    @Test
+    public void concurrentSubmits_neverOversellStock() throws Exception {
+        Item scarce = saveItem("Scarce Widget", "9.99");
+        stockLedger.addStock(scarce.getId(), 10);
+        List<AuthenticatedUser> buyers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            AuthenticatedUser buyer = createUser();
+            assertEquals(200, cartController.addTocart(request(buyer, scarce, 1), buyer).getStatusCodeValue());
+            buyers.add(buyer);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (AuthenticatedUser buyer : buyers) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return orderController.submit(buyer.getUsername(), null, buyer).getStatusCodeValue();
+            }));
+        }
+        start.countDown();
+        int sold = 0;
+        for (Future<Integer> result : results) {
+            int status = result.get(2, TimeUnit.MINUTES);
+            if (status == 200) {
+                sold++;
+            } else {
+                assertEquals(409, status);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(10, sold);
+        assertEquals(Long.valueOf(0), stockLedger.available(scarce.getId()));
+        assertEquals(0, itemStockRepository.findById(scarce.getId()).get().getQuantity());
+    }
+
+    @Test
+    public void addToCart_pastAnIntOfOneItem_isRejectedAndLeavesTheCart() {
+        Item round = saveItem("Bulk Round Widget", "0.01");
+        AuthenticatedUser principal = createUser();
+        assertEquals(200, cartController.addTocart(request(principal, round, Integer.MAX_VALUE), principal).getStatusCodeValue());
+
+        assertEquals(400, cartController.addTocart(request(principal, round, 1), principal).getStatusCodeValue());
+        ModifyCartLinesRequest lines = new ModifyCartLinesRequest();
+        lines.setLines(Arrays.asList(new CartLineChange(round.getId(), 1)));
+        assertEquals(400, cartController.modifyCart(lines, principal).getStatusCodeValue());
+
+        transactionTemplate.execute(status -> {
+            Cart cart = cartRepository.findById(principal.getCartId()).get();
+            assertEquals(Integer.MAX_VALUE, cart.getLine(round).getQuantity());
+            assertEquals(Integer.MAX_VALUE, cart.getTotal().getMinorUnits());
+            return null;
+        });
+    }
+
+    private Item saveItem(String name, String price) {
+        Item item = new Item();
+        item.setName(name);
+        item.setPrice(new BigDecimal(price));
+        item.setDescription("A widget for concurrent carts");
+        return itemRepository.save(item);
+    }
+
+    private AuthenticatedUser createUser() {
+        return TestUtils.createUser(transactionTemplate, userRepository, cartRepository, "concurrent-");
+    }
+
+    private static ModifyCartRequest request(AuthenticatedUser principal, Item item, int quantity) {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(principal.getUsername());
+        request.setItemId(item.getId());
+        request.setQuantity(quantity);
+        return request;
+    }
+}
@@ -6,19 +6,39 @@ import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserCredentials;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartLineChange;
+import com.example.demo.model.requests.ModifyCartLinesRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartResolver;
+import com.example.demo.service.ItemCatalog;
+import com.example.demo.service.PromotionEngine;
+import com.example.demo.service.PromotionRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -27,13 +47,41 @@ public class CartControllerTest {
     private final UserRepository userRepository = mock(UserRepository.class);
     private final CartRepository cartRepository = mock(CartRepository.class);
     private final ItemRepository itemRepository = mock(ItemRepository.class);
+    private final PromotionEngine promotionEngine = new PromotionEngine(new ObjectMapper(), "");
 
     @Before
     public void setup(){
         cartController = new CartController();
-        TestUtils.injectObject(cartController, "userRepository", userRepository);
+        TestUtils.injectObject(cartController, "cartResolver", new CartResolver(userRepository));
         TestUtils.injectObject(cartController, "cartRepository", cartRepository);
-        TestUtils.injectObject(cartController, "itemRepository", itemRepository);
+        TestUtils.injectObject(cartController, "itemCatalog", new ItemCatalog(itemRepository, mock(ApplicationEventPublisher.class), 100, 600));
+        TestUtils.injectObject(cartController, "promotionEngine", promotionEngine);
+    }
+
+    @Test
+    public void addToCart_usesCartFromPrincipal() {
+        Cart cart = new Cart();
+        cart.setId(7L);
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        item.setDescription("A widget that is round");
+
+        ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+        modifyCartRequest.setItemId(item.getId());
+        modifyCartRequest.setUsername("Test");
+        modifyCartRequest.setQuantity(2);
+
+        givenCart(null, cart);
+        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+
+        ResponseEntity<CartResponse> response = cartController.addTocart(modifyCartRequest, new AuthenticatedUser(1L, 7L, "test"));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(2, response.getBody().getLine(item.getId()).getQuantity());
+        verify(userRepository, never()).findCredentialsByUsername(any());
     }
 
     @Test
@@ -57,22 +105,79 @@ public class CartControllerTest {
         modifyCartRequest.setUsername(user.getUsername());
         modifyCartRequest.setQuantity(1);
 
-        when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
+        givenCart(user.getUsername(), cart);
         when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
 
-        ResponseEntity<Cart> response = cartController.addTocart(modifyCartRequest);
-        Cart cartResponse = response.getBody();
+        ResponseEntity<CartResponse> response = cartController.addTocart(modifyCartRequest, null);
+        CartResponse cartResponse = response.getBody();
 
         assertNotNull(cartResponse);
         assertEquals(200, response.getStatusCode().value());
-        assertEquals((item.getPrice()), cartResponse.getTotal());
+        assertEquals((item.getPrice()), cartResponse.getTotal().toBigDecimal());
+    }
+
+    @Test
+    public void addToCart_returnsCartPricedWithPromotions() {
+        Cart cart = new Cart();
+        cart.setId(7L);
+        Item item = TestUtils.item(1L, "Round Widget", "2.99");
+        promotionEngine.install(Collections.singletonList(PromotionRule.buyXGetY(item.getId(), 2, 1)));
+
+        ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+        modifyCartRequest.setItemId(item.getId());
+        modifyCartRequest.setQuantity(3);
+
+        givenCart(null, cart);
+        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+
+        ResponseEntity<CartResponse> response = cartController.addTocart(modifyCartRequest, new AuthenticatedUser(1L, 7L, "test"));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(897, response.getBody().getTotal().getMinorUnits());
+        assertEquals(299, response.getBody().getLine(item.getId()).getDiscount().getMinorUnits());
+        assertEquals(598, response.getBody().getPayable().getMinorUnits());
+    }
+
+    @Test
+    public void addToCart_largeQuantity_keepsOneLine() {
+        User user = new User();
+        user.setId(1);
+        user.setUsername("test");
+        user.setPassword("testPassword");
+
+        Cart cart = new Cart();
+        user.setCart(cart);
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        item.setDescription("A widget that is round");
+
+        ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+        modifyCartRequest.setItemId(item.getId());
+        modifyCartRequest.setUsername(user.getUsername());
+        modifyCartRequest.setQuantity(500);
+
+        givenCart(user.getUsername(), cart);
+        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+
+        cartController.addTocart(modifyCartRequest, null);
+        ResponseEntity<CartResponse> response = cartController.addTocart(modifyCartRequest, null);
+        CartResponse cartResponse = response.getBody();
+
+        assertNotNull(cartResponse);
+        assertEquals(1, cartResponse.getLines().size());
+        assertEquals(1000, cartResponse.getLine(item.getId()).getQuantity());
+        assertEquals(299000, cartResponse.getTotal().getMinorUnits());
+        assertTrue(cart.isTotalConsistent());
     }
 
     @Test
     public void addToCart_butUser_notFound() {
         when(userRepository.findByUsername(any())).thenReturn(any());
 
-        ResponseEntity<Cart> response = cartController.addTocart(new ModifyCartRequest());
+        ResponseEntity<CartResponse> response = cartController.addTocart(new ModifyCartRequest(), null);
         assertEquals(404, response.getStatusCode().value());
     }
 
@@ -88,9 +193,9 @@ public class CartControllerTest {
         modifyCartRequest.setUsername(user.getUsername());
         modifyCartRequest.setQuantity(1);
 
-        when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
+        givenCart(user.getUsername(), new Cart());
 
-        ResponseEntity<Cart> response = cartController.addTocart(modifyCartRequest);
+        ResponseEntity<CartResponse> response = cartController.addTocart(modifyCartRequest, null);
         assertEquals(404, response.getStatusCode().value());
     }
 
@@ -115,22 +220,56 @@ public class CartControllerTest {
         modifyCartRequest.setUsername(user.getUsername());
         modifyCartRequest.setQuantity(1);
 
-        when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
+        givenCart(user.getUsername(), cart);
         when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
 
-        ResponseEntity<Cart> response = cartController.removeFromcart(modifyCartRequest);
-        Cart cartResponse = response.getBody();
+        ResponseEntity<CartResponse> response = cartController.removeFromcart(modifyCartRequest, null);
+        CartResponse cartResponse = response.getBody();
 
         assertNotNull(cartResponse);
         assertEquals(200, response.getStatusCode().value());
-        assertEquals(0, cartResponse.getItems().size());
+        assertEquals(0, cartResponse.getLines().size());
+    }
+
+    @Test
+    public void removeCart_moreThanInCart_doesNotDriftTotal() {
+        User user = new User();
+        user.setId(1);
+        user.setUsername("test");
+        user.setPassword("testPassword");
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        item.setDescription("A widget that is round");
+
+        Cart cart = new Cart();
+        TestUtils.addItem(cart, item, 2);
+        user.setCart(cart);
+
+        ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+        modifyCartRequest.setItemId(item.getId());
+        modifyCartRequest.setUsername(user.getUsername());
+        modifyCartRequest.setQuantity(5);
+
+        givenCart(user.getUsername(), cart);
+        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+
+        cartController.removeFromcart(modifyCartRequest, null);
+        ResponseEntity<CartResponse> response = cartController.removeFromcart(modifyCartRequest, null);
+        CartResponse cartResponse = response.getBody();
+
+        assertNotNull(cartResponse);
+        assertEquals(0, cartResponse.getLines().size());
+        assertTrue(cartResponse.getTotal().isZero());
     }
 
     @Test
     public void removeCart_butUser_notFound() {
         when(userRepository.findByUsername(any())).thenReturn(any());
 
-        ResponseEntity<Cart> response = cartController.removeFromcart(new ModifyCartRequest());
+        ResponseEntity<CartResponse> response = cartController.removeFromcart(new ModifyCartRequest(), null);
         assertEquals(404, response.getStatusCode().value());
     }
 
@@ -146,9 +285,150 @@ public class CartControllerTest {
         modifyCartRequest.setUsername(user.getUsername());
         modifyCartRequest.setQuantity(1);
 
-        when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
+        givenCart(user.getUsername(), new Cart());
 
-        ResponseEntity<Cart> response = cartController.removeFromcart(modifyCartRequest);
+        ResponseEntity<CartResponse> response = cartController.removeFromcart(modifyCartRequest, null);
         assertEquals(404, response.getStatusCode().value());
     }
+
+    @Test
+    public void modifyCart_appliesAllLinesWithOneItemLookup() {
+        Cart cart = new Cart();
+        Item round = TestUtils.item(1L, "Round Widget", "2.99");
+        Item square = TestUtils.item(2L, "Square Widget", "1.99");
+        TestUtils.addItem(cart, square, 3);
+        givenCart("test", cart);
+        when(itemRepository.findAllById(any())).thenReturn(Arrays.asList(round, square));
+
+        ModifyCartLinesRequest request = new ModifyCartLinesRequest();
+        request.setUsername("test");
+        request.setLines(Arrays.asList(new CartLineChange(1L, 2), new CartLineChange(2L, -1), new CartLineChange(1L, 1)));
+        ResponseEntity<CartResponse> response = cartController.modifyCart(request, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(3, response.getBody().getLine(round.getId()).getQuantity());
+        assertEquals(2, response.getBody().getLine(square.getId()).getQuantity());
+        assertTrue(cart.isTotalConsistent());
+        verify(itemRepository).findAllById(any());
+        verify(itemRepository, never()).findById(any());
+    }
+
+    @Test
+    public void modifyCart_unknownItem_changesNothing() {
+        Cart cart = new Cart();
+        givenCart("test", cart);
+        when(itemRepository.findAllById(any())).thenReturn(Collections.singletonList(TestUtils.item(1L, "Round Widget", "2.99")));
+
+        ModifyCartLinesRequest request = new ModifyCartLinesRequest();
+        request.setUsername("test");
+        request.setLines(Arrays.asList(new CartLineChange(1L, 2), new CartLineChange(99L, 1)));
+        ResponseEntity<CartResponse> response = cartController.modifyCart(request, null);
+
+        assertEquals(404, response.getStatusCode().value());
+        verify(cartRepository, never()).applyChanges(any(), any());
+    }
+
+    @Test
+    public void modifyCart_tooManyLines_isRejected() {
+        ModifyCartLinesRequest request = new ModifyCartLinesRequest();
+        request.setLines(Collections.nCopies(CartController.MAX_LINE_CHANGES + 1, new CartLineChange(1L, 1)));
+
+        ResponseEntity<CartResponse> response = cartController.modifyCart(request, new AuthenticatedUser(1L, 7L, "test"));
+
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    public void modifyCart_lineWithoutItemId_isRejected() {
+        ModifyCartLinesRequest request = new ModifyCartLinesRequest();
+        request.setLines(Arrays.asList(new CartLineChange(1L, 1), new CartLineChange(null, 1)));
+
+        ResponseEntity<CartResponse> response = cartController.modifyCart(request, new AuthenticatedUser(1L, 7L, "test"));
+
+        assertEquals(400, response.getStatusCode().value());
+        verify(cartRepository, never()).applyChanges(any(), any());
+    }
+
+    @Test
+    public void modifyCart_overflowingQuantity_isRejected() {
+        ModifyCartLinesRequest request = new ModifyCartLinesRequest();
+        request.setLines(Arrays.asList(new CartLineChange(1L, Integer.MAX_VALUE), new CartLineChange(1L, 1)));
+
+        ResponseEntity<CartResponse> response = cartController.modifyCart(request, new AuthenticatedUser(1L, 7L, "test"));
+
+        assertEquals(400, response.getStatusCode().value());
+        verify(cartRepository, never()).applyChanges(any(), any());
+    }
+
+    /**
+     * Backs the mocked repository with an in-memory cart, applying the atomic updates to it.
+     */
+    private void givenCart(String username, Cart cart) {
+        if (cart.getId() == null) {
+            cart.setId(1L);
+        }
+        Long cartId = cart.getId();
+        if (username != null) {
+            UserCredentials credentials = mock(UserCredentials.class);
+            when(credentials.getCartId()).thenReturn(cartId);
+            when(userRepository.findCredentialsByUsername(username)).thenReturn(credentials);
+        }
+        when(cartRepository.findWithLinesById(cartId)).thenReturn(Optional.of(cart));
+        doAnswer(invocation -> {
+            TestUtils.addItem(cart, invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(cartRepository).addItem(eq(cartId), any(Item.class), anyInt());
+        doAnswer(invocation -> {
+            TestUtils.removeItem(cart, invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(cartRepository).removeItem(eq(cartId), any(Item.class), anyInt());
+        doAnswer(invocation -> {
+            Map<Item, Integer> changes = invocation.getArgument(1);
+            changes.forEach((item, quantity) -> {
+                if (quantity >= 0) {
+                    TestUtils.addItem(cart, item, quantity);
+                } else {
+                    TestUtils.removeItem(cart, item, -quantity);
+                }
+            });
+            return null;
+        }).when(cartRepository).applyChanges(eq(cartId), any());
+    }
+
+    @Test
+    public void getCart_matchingETag_returnsNotModifiedWithoutLoadingLines() {
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setVersion(3L);
+        TestUtils.addItem(cart, TestUtils.item(1L, "Round Widget", "2.99"), 1);
+        givenCart("test", cart);
+        when(cartRepository.findVersionById(1L)).thenReturn(3L);
+
+        ResponseEntity<CartResponse> first = cartController.getCart("test", null, null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals(1, first.getBody().getLines().size());
+
+        ResponseEntity<CartResponse> second = cartController.getCart("test", etag, null);
+        assertEquals(304, second.getStatusCode().value());
+        assertNull(second.getBody());
+        verify(cartRepository, times(1)).findWithLinesById(1L);
+    }
+
+    @Test
+    public void getCart_newVersionOrPromotions_changesTheETag() {
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setVersion(3L);
+        givenCart("test", cart);
+        when(cartRepository.findVersionById(1L)).thenReturn(3L);
+        String etag = cartController.getCart("test", null, null).getHeaders().getETag();
+
+        promotionEngine.install(Collections.singletonList(PromotionRule.percentage(1L, "10")));
+        assertEquals(200, cartController.getCart("test", etag, null).getStatusCode().value());
+
+        etag = cartController.getCart("test", null, null).getHeaders().getETag();
+        when(cartRepository.findVersionById(1L)).thenReturn(4L);
+        assertEquals(200, cartController.getCart("test", etag, null).getStatusCode().value());
+    }
 }
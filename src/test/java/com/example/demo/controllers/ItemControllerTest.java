@@ -3,32 +3,61 @@ package com.example.demo.controllers;
 import com.example.demo.TestUtils;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemResponse;
+import com.example.demo.service.ItemCatalog;
+import com.example.demo.service.ItemJsonCache;
+import com.example.demo.service.ItemSearchIndex;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ItemControllerTest {
     private ItemController itemController;
     private final ItemRepository itemRepository = mock(ItemRepository.class);
+    private final ItemSearchIndex itemSearchIndex = new ItemSearchIndex(itemRepository);
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Before
     public void setUp() {
         itemController = new ItemController();
         TestUtils.injectObject(itemController, "itemRepository", itemRepository);
+        TestUtils.injectObject(itemController, "itemCatalog", new ItemCatalog(itemRepository, mock(ApplicationEventPublisher.class), 100, 600));
+        TestUtils.injectObject(itemController, "itemSearchIndex", itemSearchIndex);
+        TestUtils.injectObject(itemController, "itemJsonCache", new ItemJsonCache(objectMapper, 100));
+        TestUtils.injectObject(itemController, "entityManager", mock(EntityManager.class));
+        TestUtils.injectObject(itemController, "defaultPageSize", 100);
+        TestUtils.injectObject(itemController, "maxPageSize", 1000);
+        TestUtils.injectObject(itemController, "maxAgeSeconds", 60L);
     }
 
     @Test
-    public void getAllItems_successfully() {
+    public void getAllItems_successfully() throws IOException {
         Item item1 = new Item();
         item1.setId(1L);
         item1.setName("Round Widget");
@@ -45,19 +74,57 @@ public class ItemControllerTest {
         itemList.add(item1);
         itemList.add(item2);
 
-        when(itemRepository.findAll()).thenReturn(itemList);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(itemList);
 
-        ResponseEntity<List<Item>> response = itemController.getItems();
+        ResponseEntity<byte[]> response = itemController.getItems(null, 5, null);
 
-        List<Item> itemResponse = response.getBody();
+        List<ItemResponse> itemResponse = parseItems(response);
 
         assertNotNull(itemResponse);
         assertEquals(200, response.getStatusCode().value());
         assertEquals(itemList.size(), itemResponse.size());
+        assertNull(response.getHeaders().getFirst(ItemController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void getItems_fullPage_returnsNextCursor() throws IOException {
+        List<Item> itemList = new ArrayList<>();
+        itemList.add(TestUtils.item(3L, "Round Widget", "2.99"));
+        itemList.add(TestUtils.item(4L, "Square Widget", "2.99"));
+
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class))).thenReturn(itemList);
+
+        ResponseEntity<byte[]> response = itemController.getItems(2L, 2, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(2, parseItems(response).size());
+        assertEquals("4", response.getHeaders().getFirst(ItemController.NEXT_CURSOR_HEADER));
     }
 
     @Test
-    public void getItem_byId_successfully() {
+    public void streamItems_writesOneJsonObjectPerLine() throws Exception {
+        TestUtils.injectObject(itemController, "maxPageSize", 2);
+        List<Item> firstPage = new ArrayList<>();
+        firstPage.add(TestUtils.item(1L, "Round Widget", "2.99"));
+        firstPage.add(TestUtils.item(2L, "Square Widget", "2.99"));
+        List<Item> secondPage = new ArrayList<>();
+        secondPage.add(TestUtils.item(3L, "Triangle Widget", "2.99"));
+
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(firstPage);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class))).thenReturn(secondPage);
+
+        ResponseEntity<StreamingResponseBody> response = itemController.streamItems(null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(ItemController.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertEquals(3, lines.length);
+        assertEquals("Triangle Widget", objectMapper.readValue(lines[2], ItemResponse.class).getName());
+    }
+
+    @Test
+    public void getItem_byId_successfully() throws IOException {
         Item item = new Item();
         item.setId(1L);
         item.setName("Round Widget");
@@ -66,8 +133,8 @@ public class ItemControllerTest {
 
         when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
 
-        ResponseEntity<Item> response = itemController.getItemById(item.getId());
-        Item itemResponse = response.getBody();
+        ResponseEntity<byte[]> response = itemController.getItemById(item.getId(), null);
+        ItemResponse itemResponse = objectMapper.readValue(response.getBody(), ItemResponse.class);
 
         assertEquals(200, response.getStatusCode().value());
         assertNotNull(itemResponse);
@@ -77,7 +144,7 @@ public class ItemControllerTest {
     }
 
     @Test
-    public void getItem_byName_successfully() {
+    public void getItem_byName_successfully() throws IOException {
         Item item = new Item();
         item.setId(1L);
         item.setName("Round Widget");
@@ -89,11 +156,111 @@ public class ItemControllerTest {
 
         when(itemRepository.findByName(item.getName())).thenReturn(itemList);
 
-        ResponseEntity<List<Item>> response = itemController.getItemsByName(item.getName());
-        List<Item> itemResponse = response.getBody();
+        ResponseEntity<byte[]> response = itemController.getItemsByName(item.getName(), null);
+        List<ItemResponse> itemResponse = parseItems(response);
 
         assertNotNull(itemResponse);
         assertEquals(200, response.getStatusCode().value());
         assertEquals(itemList.size(), itemResponse.size());
     }
+
+    @Test
+    public void getItem_byId_servedFromCacheOnRepeat() throws IOException {
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        item.setDescription("A widget that is round");
+
+        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+
+        byte[] first = itemController.getItemById(item.getId(), null).getBody();
+        ResponseEntity<byte[]> response = itemController.getItemById(item.getId(), null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(first, response.getBody());
+        assertEquals(item.getName(), objectMapper.readValue(response.getBody(), ItemResponse.class).getName());
+        verify(itemRepository, times(1)).findById(item.getId());
+    }
+
+    @Test
+    public void searchItems_byNamePrefixAndDescription() throws IOException {
+        Item round = TestUtils.item(1L, "Round Widget", "2.99");
+        round.setDescription("A widget that is round");
+        Item square = TestUtils.item(2L, "Square Widget", "2.99");
+        square.setDescription("A widget that is square");
+        Item gadget = TestUtils.item(3L, "Gadget", "2.99");
+        gadget.setDescription("Not a widget, but round");
+        itemSearchIndex.index(round);
+        itemSearchIndex.index(square);
+        itemSearchIndex.index(gadget);
+
+        List<ItemResponse> widgets = parseItems(itemController.searchItems("wid", 0, null, null));
+        assertEquals(3, widgets.size());
+        assertEquals("Round Widget", widgets.get(0).getName());
+        assertEquals("Gadget", widgets.get(2).getName());
+
+        List<ItemResponse> roundWidgets = parseItems(itemController.searchItems("round wid", 0, null, null));
+        assertEquals(2, roundWidgets.size());
+        assertEquals("Round Widget", roundWidgets.get(0).getName());
+
+        List<ItemResponse> paged = parseItems(itemController.searchItems("widget", 1, 1, null));
+        assertEquals(1, paged.size());
+        assertEquals("Square Widget", paged.get(0).getName());
+
+        gadget.setName("Gizmo");
+        gadget.setDescription("Something else");
+        itemSearchIndex.index(gadget);
+        assertEquals(2, parseItems(itemController.searchItems("widget", 0, null, null)).size());
+    }
+
+    private List<ItemResponse> parseItems(ResponseEntity<byte[]> response) throws IOException {
+        return objectMapper.readValue(response.getBody(), new TypeReference<List<ItemResponse>>() {
+        });
+    }
+
+    @Test
+    public void getItem_matchingETag_returnsNotModifiedWithoutBody() {
+        Item item = TestUtils.item(1L, "Round Widget", "2.99");
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+
+        ResponseEntity<byte[]> first = itemController.getItemById(1L, null);
+        String etag = first.getHeaders().getETag();
+        ResponseEntity<byte[]> second = itemController.getItemById(1L, etag);
+
+        assertNotNull(etag);
+        assertEquals("max-age=60", first.getHeaders().getCacheControl());
+        assertEquals(304, second.getStatusCode().value());
+        assertNull(second.getBody());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertEquals("max-age=60", second.getHeaders().getCacheControl());
+    }
+
+    @Test
+    public void getItem_newVersion_changesTheETag() {
+        Item item = TestUtils.item(1L, "Round Widget", "2.99");
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        String etag = itemController.getItemById(1L, null).getHeaders().getETag();
+
+        item.setVersion(1);
+        ResponseEntity<byte[]> response = itemController.getItemById(1L, etag);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertNotNull(response.getBody());
+    }
+
+    @Test
+    public void getItems_matchingETag_keepsTheCursorHeader() {
+        List<Item> itemList = new ArrayList<>();
+        itemList.add(TestUtils.item(3L, "Round Widget", "2.99"));
+        itemList.add(TestUtils.item(4L, "Square Widget", "2.99"));
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class))).thenReturn(itemList);
+
+        String etag = itemController.getItems(2L, 2, null).getHeaders().getETag();
+        ResponseEntity<byte[]> response = itemController.getItems(2L, 2, "\"other\", W/" + etag);
+
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+        assertEquals("4", response.getHeaders().getFirst(ItemController.NEXT_CURSOR_HEADER));
+    }
 }
@@ -5,32 +5,71 @@ import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserCredentials;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.model.responses.OrderTicket;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartResolver;
+import com.example.demo.service.IdempotencyKeyStore;
+import com.example.demo.service.OrderPipeline;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.Outbox;
+import com.example.demo.service.PromotionEngine;
+import com.example.demo.service.PromotionRule;
+import com.example.demo.service.StockLedger;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OrderControllerTest {
     private OrderController orderController;
     private final UserRepository userRepository = mock(UserRepository.class);
     private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final PromotionEngine promotionEngine = new PromotionEngine(new ObjectMapper(), "");
 
     @Before
     public void setUp() {
         orderController = new OrderController();
         TestUtils.injectObject(orderController, "userRepository", userRepository);
+        TestUtils.injectObject(orderController, "cartResolver", new CartResolver(userRepository));
         TestUtils.injectObject(orderController, "orderRepository", orderRepository);
+        TestUtils.injectObject(orderController, "orderService", new OrderService(cartRepository, orderRepository, mock(Outbox.class), mock(StockLedger.class), promotionEngine));
+        TestUtils.injectObject(orderController, "idempotencyKeys", new IdempotencyKeyStore(100, 60));
+        TestUtils.injectObject(orderController, "orderPipeline", new OrderPipeline(mock(OrderService.class), 1, 10, 60));
+        TestUtils.injectObject(orderController, "defaultPageSize", 2);
+        TestUtils.injectObject(orderController, "maxPageSize", 100);
     }
 
     @Test
@@ -50,29 +89,170 @@ public class OrderControllerTest {
         item.setPrice(BigDecimal.valueOf(2.99));
         item.setDescription("A widget that is round");
 
-        List<Item> items = new ArrayList<>();
-        items.add(item);
-        cart.setItems(items);
+        TestUtils.addItem(cart, item, 1);
+        givenCart(user.getUsername(), 1L, cart);
 
-        when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
-
-        ResponseEntity<UserOrder> response = orderController.submit(user.getUsername());
-        UserOrder userOrder = response.getBody();
+        ResponseEntity<OrderResponse> response = orderController.submit(user.getUsername(), null, null);
+        OrderResponse userOrder = response.getBody();
 
         assertNotNull(userOrder);
         assertEquals(200, response.getStatusCode().value());
-        assertEquals(items.size(), userOrder.getItems().size());
-        assertEquals(user.getUsername(), userOrder.getUser().getUsername());
+        assertEquals(1, userOrder.getLines().size());
+        assertEquals(item.getId(), userOrder.getLines().get(0).getItemId());
+        assertEquals(item.getName(), userOrder.getLines().get(0).getName());
+        ArgumentCaptor<UserOrder> saved = ArgumentCaptor.forClass(UserOrder.class);
+        verify(orderRepository).saveAndFlush(saved.capture());
+        verify(orderRepository).insertLines(saved.getValue());
+        assertEquals(user.getUsername(), saved.getValue().getUser().getUsername());
+        verify(cartRepository).clear(1L, 0L);
+    }
+
+    @Test
+    public void submitOrder_chargesThePromotionalPrice() {
+        promotionEngine.install(Collections.singletonList(PromotionRule.percentage(1L, "10")));
+        Cart cart = cartWithOneItem("test");
+        givenCart("test", 1L, cart);
+
+        OrderResponse order = orderController.submit("test", null, null).getBody();
+
+        assertNotNull(order);
+        assertEquals(270, order.getTotal().getMinorUnits());
+        assertEquals(29, order.getDiscount().getMinorUnits());
+        assertEquals(29, order.getLines().get(0).getDiscount().getMinorUnits());
+    }
+
+    @Test
+    public void submitOrder_usesCartFromPrincipal() {
+        User user = new User();
+        user.setId(1);
+        user.setUsername("test");
+
+        Cart cart = new Cart();
+        cart.setId(7L);
+        user.setCart(cart);
+        cart.setUser(user);
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        TestUtils.addItem(cart, item, 3);
+
+        when(cartRepository.lock(7L)).thenReturn(0L);
+        when(cartRepository.findById(7L)).thenReturn(Optional.of(cart));
+
+        ResponseEntity<OrderResponse> response = orderController.submit("test", null, new AuthenticatedUser(1L, 7L, "test"));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(3, response.getBody().getLines().get(0).getQuantity());
+        verify(userRepository, never()).findCredentialsByUsername(any());
     }
 
     @Test
     public void submitOrder_fail() {
-        when(userRepository.findByUsername(any())).thenReturn(null);
-        ResponseEntity<UserOrder> response = orderController.submit(any());
+        when(userRepository.findCredentialsByUsername(any())).thenReturn(null);
+        ResponseEntity<OrderResponse> response = orderController.submit("nobody", null, null);
         assertEquals(404, response.getStatusCode().value());
 
     }
 
+    @Test
+    public void submitOrder_replayedKey_returnsFirstOrder() {
+        Cart cart = cartWithOneItem("test");
+        givenCart("test", 7L, cart);
+
+        ResponseEntity<OrderResponse> first = orderController.submit("test", "key-1", null);
+        ResponseEntity<OrderResponse> replay = orderController.submit("TEST", "key-1", null);
+        ResponseEntity<OrderResponse> other = orderController.submit("test", "key-2", null);
+
+        assertEquals(200, replay.getStatusCode().value());
+        assertSame(first.getBody(), replay.getBody());
+        assertNotSame(first.getBody(), other.getBody());
+        verify(cartRepository, times(2)).findById(7L);
+        verify(orderRepository, times(2)).saveAndFlush(any());
+    }
+
+    @Test
+    public void submitOrder_notFoundUnderKey_isNotReplayed() {
+        when(userRepository.findCredentialsByUsername(any())).thenReturn(null);
+        assertEquals(404, orderController.submit("test", "key-1", null).getStatusCode().value());
+
+        givenCart("test", 7L, cartWithOneItem("test"));
+
+        assertEquals(200, orderController.submit("test", "key-1", null).getStatusCode().value());
+        assertSame(orderController.submit("test", "key-1", null).getBody(),
+                orderController.submit("test", "key-1", null).getBody());
+        verify(orderRepository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    public void submitOrder_cartChangedDuringSubmit_isConflictAndKeyCanBeRetried() {
+        Cart cart = cartWithOneItem("test");
+        givenCart("test", 7L, cart);
+        doThrow(new OptimisticLockingFailureException("changed")).doNothing().when(cartRepository).clear(7L, 0L);
+
+        assertEquals(409, orderController.submit("test", "key-1", null).getStatusCode().value());
+        assertEquals(200, orderController.submit("test", "key-1", null).getStatusCode().value());
+    }
+
+    @Test
+    public void submitOrder_oversizedKey_isRejected() {
+        char[] key = new char[IdempotencyKeyStore.MAX_KEY_LENGTH + 1];
+        Arrays.fill(key, 'k');
+
+        assertEquals(400, orderController.submit("test", new String(key), null).getStatusCode().value());
+        verify(cartRepository, never()).findById(any());
+    }
+
+    @Test
+    public void submitAsync_queuesUntilFullThenAsksClientToRetry() {
+        AuthenticatedUser principal = new AuthenticatedUser(1L, 7L, "test");
+
+        ResponseEntity<OrderTicket> accepted = orderController.submitAsync("test", null, principal);
+        ResponseEntity<OrderTicket> rejected = orderController.submitAsync("test", null, principal);
+
+        assertEquals(202, accepted.getStatusCode().value());
+        assertEquals(OrderTicket.Status.PENDING, accepted.getBody().getStatus());
+        assertEquals("/api/order/status/test/" + accepted.getBody().getId(), accepted.getHeaders().getLocation().toString());
+        assertEquals(503, rejected.getStatusCode().value());
+        assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verify(cartRepository, never()).findById(any());
+    }
+
+    @Test
+    public void orderStatus_isOnlyVisibleToItsOwner() {
+        String ticketId = orderController.submitAsync("test", null, new AuthenticatedUser(1L, 7L, "test")).getBody().getId();
+
+        assertEquals(200, orderController.getOrderStatus("Test", ticketId).getStatusCode().value());
+        assertEquals(404, orderController.getOrderStatus("someone-else", ticketId).getStatusCode().value());
+        assertEquals(404, orderController.getOrderStatus("test", "no-such-ticket").getStatusCode().value());
+    }
+
+    private static Cart cartWithOneItem(String username) {
+        User user = new User();
+        user.setId(1);
+        user.setUsername(username);
+        Cart cart = new Cart();
+        user.setCart(cart);
+        cart.setUser(user);
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        TestUtils.addItem(cart, item, 1);
+        return cart;
+    }
+
+    private void givenCart(String username, Long cartId, Cart cart) {
+        cart.setId(cartId);
+        UserCredentials credentials = mock(UserCredentials.class);
+        when(credentials.getCartId()).thenReturn(cartId);
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(credentials);
+        when(cartRepository.lock(cartId)).thenReturn(0L);
+        when(cartRepository.findById(cartId)).thenReturn(Optional.of(cart));
+    }
+
     @Test
     public void getUserOrder_successfully() {
         User user = new User();
@@ -90,25 +270,78 @@ public class OrderControllerTest {
         item.setPrice(BigDecimal.valueOf(2.99));
         item.setDescription("A widget that is round");
 
-        List<Item> items = new ArrayList<>();
-        items.add(item);
-        cart.setItems(items);
+        TestUtils.addItem(cart, item, 1);
 
         when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
 
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser(user.getUsername());
-        List<UserOrder> userOrderResponse = response.getBody();
+        ResponseEntity<List<OrderSummary>> response = orderController.getOrdersForUser(user.getUsername(), null, null, null, null, null, null);
+        List<OrderSummary> userOrderResponse = response.getBody();
 
         assertNotNull(userOrderResponse);
         assertEquals(200, response.getStatusCode().value());
 
     }
 
+    @Test
+    public void getUserOrder_pagesWithCursor() {
+        User user = new User();
+        user.setId(1);
+        user.setUsername("test");
+        user.setPassword("testPassword");
+
+        Instant createdAt = Instant.parse("2026-01-02T03:04:05.678Z");
+        List<OrderSummary> firstPage = new ArrayList<>();
+        firstPage.add(new OrderSummary(9L, createdAt.plusSeconds(60), 299, "USD", 1));
+        firstPage.add(new OrderSummary(7L, createdAt, 199, "USD", 1));
+        List<OrderSummary> lastPage = new ArrayList<>();
+        lastPage.add(new OrderSummary(3L, createdAt.minusSeconds(60), 498, "USD", 2));
+
+        when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
+        when(orderRepository.findSummaries(eq(user), eq(Instant.EPOCH), any(Instant.class), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(firstPage);
+        when(orderRepository.findSummaries(eq(user), eq(Instant.EPOCH), eq(createdAt), eq(7L), any(Pageable.class)))
+                .thenReturn(lastPage);
+
+        ResponseEntity<List<OrderSummary>> response = orderController.getOrdersForUser(user.getUsername(), null, null, null, null, null, null);
+        String cursor = response.getHeaders().getFirst(OrderController.NEXT_CURSOR_HEADER);
+        assertEquals(2, response.getBody().size());
+        assertEquals(createdAt.toEpochMilli() + "_7", cursor);
+
+        response = orderController.getOrdersForUser(user.getUsername(), cursor, null, null, null, null, null);
+        assertEquals(1, response.getBody().size());
+        assertNull(response.getHeaders().getFirst(OrderController.NEXT_CURSOR_HEADER));
+
+        response = orderController.getOrdersForUser(user.getUsername(), "not-a-cursor", null, null, null, null, null);
+        assertEquals(400, response.getStatusCode().value());
+    }
+
     @Test
     public void getUserOrder_fail() {
         when(userRepository.findByUsername(any())).thenReturn(null);
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser(any());
+        ResponseEntity<List<OrderSummary>> response = orderController.getOrdersForUser(any(), null, null, null, null, null, null);
         assertEquals(404, response.getStatusCode().value());
     }
 
+    @Test
+    public void getUserOrder_matchingETag_returnsNotModified() {
+        User user = new User();
+        user.setId(1);
+        user.setUsername("test");
+        List<OrderSummary> orders = new ArrayList<>();
+        orders.add(new OrderSummary(9L, Instant.parse("2026-01-02T03:04:05.678Z"), 299, "USD", 1));
+
+        when(userRepository.findByUsername(user.getUsername())).thenReturn(user);
+        when(orderRepository.findSummaries(eq(user), eq(Instant.EPOCH), any(Instant.class), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(orders);
+
+        String etag = orderController.getOrdersForUser(user.getUsername(), null, null, null, null, null, null).getHeaders().getETag();
+        ResponseEntity<List<OrderSummary>> response = orderController.getOrdersForUser(user.getUsername(), null, null, null, null, etag, null);
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+
+        orders.add(0, new OrderSummary(11L, Instant.parse("2026-01-03T03:04:05.678Z"), 199, "USD", 1));
+        response = orderController.getOrdersForUser(user.getUsername(), null, null, null, null, etag, null);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(2, response.getBody().size());
+    }
 }
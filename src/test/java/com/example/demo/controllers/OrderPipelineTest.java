@@ -0,0 +1,123 @@
+package com.example.demo.controllers;
+
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.OrderTicket;
+import com.example.demo.security.AuthenticatedUser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Submits a burst of carts through the asynchronous pipeline and polls until every ticket settles.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderPipelineTest {
+
+    private static final int USERS = 40;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void queuedOrders_areWrittenAndCartsEmptied() throws Exception {
+        Item item = new Item();
+        item.setName("Pipeline Widget");
+        item.setPrice(new BigDecimal("4.25"));
+        item.setDescription("A widget for queued orders");
+        Item saved = itemRepository.save(item);
+
+        List<AuthenticatedUser> users = new ArrayList<>();
+        List<String> tickets = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            AuthenticatedUser user = createUser();
+            ModifyCartRequest request = new ModifyCartRequest();
+            request.setUsername(user.getUsername());
+            request.setItemId(saved.getId());
+            request.setQuantity(i + 1);
+            cartController.addTocart(request, user);
+            users.add(user);
+        }
+        for (AuthenticatedUser user : users) {
+            ResponseEntity<OrderTicket> response = orderController.submitAsync(user.getUsername(), null, user);
+            assertEquals(202, response.getStatusCodeValue());
+            tickets.add(response.getBody().getId());
+        }
+        // a second submission of the same cart is written after the first and finds it empty
+        String repeat = orderController.submitAsync(users.get(0).getUsername(), null, users.get(0)).getBody().getId();
+
+        for (int i = 0; i < USERS; i++) {
+            OrderTicket ticket = awaitSettled(users.get(i).getUsername(), tickets.get(i));
+            assertEquals(OrderTicket.Status.COMPLETED, ticket.getStatus());
+            int quantity = i + 1;
+            Long cartId = users.get(i).getCartId();
+            transactionTemplate.execute(status -> {
+                UserOrder order = orderRepository.findById(ticket.getOrderId()).get();
+                assertEquals(quantity, order.getLines().get(0).getQuantity());
+                assertEquals(quantity * 425L, order.getTotal().getMinorUnits());
+                Cart cart = cartRepository.findById(cartId).get();
+                assertTrue(cart.getLines().isEmpty());
+                assertTrue(cart.getTotal().isZero());
+                return null;
+            });
+        }
+        OrderTicket repeated = awaitSettled(users.get(0).getUsername(), repeat);
+        assertEquals(OrderTicket.Status.COMPLETED, repeated.getStatus());
+        transactionTemplate.execute(status -> {
+            assertTrue(orderRepository.findById(repeated.getOrderId()).get().getLines().isEmpty());
+            return null;
+        });
+    }
+
+    private OrderTicket awaitSettled(String username, String ticketId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            OrderTicket ticket = orderController.getOrderStatus(username, ticketId).getBody();
+            if (ticket.getStatus() != OrderTicket.Status.PENDING || System.currentTimeMillis() > deadline) {
+                return ticket;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private AuthenticatedUser createUser() {
+        return TestUtils.createUser(transactionTemplate, userRepository, cartRepository, "pipeline-");
+    }
+}
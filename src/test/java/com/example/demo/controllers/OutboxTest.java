@@ -0,0 +1,132 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OutboxEvent;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OutboxEventRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.InMemoryOutboxSink;
+import com.example.demo.service.Outbox;
+import com.example.demo.service.OutboxPublisher;
+import com.example.demo.service.OutboxSink;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OutboxTest {
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private OutboxSink outboxSink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void submittedOrder_isPublishedOnceAndRemovedFromOutbox() throws Exception {
+        OrderResponse order = submitOrder();
+
+        outboxPublisher.publishPending();
+
+        List<OutboxEvent> published = publishedFor(order);
+        assertEquals(1, published.size());
+        assertEquals(Outbox.ORDER_CREATED, published.get(0).getType());
+        JsonNode payload = objectMapper.readTree(published.get(0).getPayload());
+        assertEquals(order.getId().longValue(), payload.get("orderId").asLong());
+        assertEquals(3, payload.get("lines").get(0).get("quantity").asInt());
+        assertFalse(outboxEventRepository.existsById(published.get(0).getId()));
+    }
+
+    @Test
+    public void failingSink_leavesEventsForTheNextRun() {
+        OrderResponse order = submitOrder();
+        OutboxPublisher failing = new OutboxPublisher(outboxEventRepository, events -> {
+            throw new IOException("sink unavailable");
+        }, 10);
+
+        assertEquals(0, failing.publishPending());
+        assertTrue(publishedFor(order).isEmpty());
+        assertTrue(outboxEventRepository.findAll().stream().anyMatch(event -> event.getAggregateId().equals(order.getId())));
+
+        outboxPublisher.publishPending();
+        assertEquals(1, publishedFor(order).size());
+    }
+
+    private List<OutboxEvent> publishedFor(OrderResponse order) {
+        return ((InMemoryOutboxSink) outboxSink).getEvents().stream()
+                .filter(event -> event.getAggregateId().equals(order.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private OrderResponse submitOrder() {
+        Item item = new Item();
+        item.setName("Outbox Widget");
+        item.setPrice(new BigDecimal("3.10"));
+        item.setDescription("A widget for outbox events");
+        Item saved = itemRepository.save(item);
+
+        String username = "outbox-" + UUID.randomUUID();
+        AuthenticatedUser principal = transactionTemplate.execute(status -> {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("not-a-real-hash");
+            Cart cart = new Cart();
+            cartRepository.save(cart);
+            user.setCart(cart);
+            userRepository.save(user);
+            return new AuthenticatedUser(user.getId(), cart.getId(), username);
+        });
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(username);
+        request.setItemId(saved.getId());
+        request.setQuantity(3);
+        cartController.addTocart(request, principal);
+        return orderController.submit(username, null, principal).getBody();
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.controllers;
+
+import com.example.demo.QueryCounter;
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserCredentials;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.ItemCatalog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Runs controller calls the way a request does (one persistence context, response serialized
+ * before it closes) and fails when the statement count grows with the number of rows returned.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class QueryCountTest {
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ItemCatalog itemCatalog;
+
+    private QueryCounter queryCounter;
+
+    private final List<Item> items = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        queryCounter = new QueryCounter(entityManagerFactory);
+        for (int i = 0; i < 8; i++) {
+            Item item = new Item();
+            item.setName("Query Count Widget " + i);
+            item.setPrice(BigDecimal.valueOf(1.5 + i));
+            item.setDescription("A widget for counting queries");
+            items.add(itemRepository.save(item));
+        }
+    }
+
+    @Test
+    public void orderHistory_queryCountDoesNotGrowWithOrders() {
+        String fewOrders = createUser();
+        placeOrders(fewOrders, 1, 1);
+        String manyOrders = createUser();
+        placeOrders(manyOrders, 5, items.size());
+
+        AuthenticatedUser fewPrincipal = principal(fewOrders);
+        AuthenticatedUser manyPrincipal = principal(manyOrders);
+
+        queryCounter.assertSameCount("Order history",
+                () -> request(() -> orderController.getOrdersForUser(fewOrders, null, null, null, null, null, fewPrincipal)),
+                () -> request(() -> orderController.getOrdersForUser(manyOrders, null, null, null, null, null, manyPrincipal)));
+    }
+
+    @Test
+    public void orderDetail_queryCountDoesNotGrowWithLines() {
+        String smallOrder = createUser();
+        Long smallOrderId = placeOrders(smallOrder, 1, 1);
+        String largeOrder = createUser();
+        Long largeOrderId = placeOrders(largeOrder, 1, items.size());
+
+        AuthenticatedUser smallPrincipal = principal(smallOrder);
+        AuthenticatedUser largePrincipal = principal(largeOrder);
+
+        queryCounter.assertSameCount("Order detail",
+                () -> request(() -> orderController.getOrderForUser(smallOrder, smallOrderId, smallPrincipal)),
+                () -> request(() -> orderController.getOrderForUser(largeOrder, largeOrderId, largePrincipal)));
+
+        OrderResponse order = (OrderResponse) request(() -> orderController.getOrderForUser(largeOrder, largeOrderId, largePrincipal));
+        assertEquals(items.size(), order.getLines().size());
+        assertEquals(items.get(0).getName(), order.getLines().get(0).getName());
+    }
+
+    @Test
+    public void addToCart_queryCountDoesNotGrowWithCartLines() {
+        String smallCart = createUser();
+        fillCart(smallCart, 1);
+        String largeCart = createUser();
+        fillCart(largeCart, items.size() - 1);
+        Item last = items.get(items.size() - 1);
+        AuthenticatedUser smallPrincipal = principal(smallCart);
+        AuthenticatedUser largePrincipal = principal(largeCart);
+        // only the first call would miss the catalog cache for the item being added
+        itemCatalog.findById(last.getId());
+
+        queryCounter.assertSameCount("Add to cart",
+                () -> request(() -> cartController.addTocart(modifyRequest(smallCart, last, 2), smallPrincipal)),
+                () -> request(() -> cartController.addTocart(modifyRequest(largeCart, last, 2), largePrincipal)));
+    }
+
+    @Test
+    public void credentialsLookup_isOneQueryAndIgnoresCase() {
+        String username = createUser();
+        UserCredentials[] credentials = new UserCredentials[1];
+
+        long queries = queryCounter.count(() -> credentials[0] = userRepository.findCredentialsByUsername(username.toUpperCase()));
+
+        assertEquals(1, queries);
+        assertEquals(username, credentials[0].getUsername());
+        assertEquals("not-a-real-hash", credentials[0].getPassword());
+        assertNotNull(credentials[0].getId());
+        assertNotNull(credentials[0].getCartId());
+    }
+
+    @Test
+    public void cartLineInserts_drawConsecutiveIds() {
+        String username = createUser();
+        Long cartId = principal(username).getCartId();
+        for (Item item : items.subList(0, 3)) {
+            cartRepository.addItem(cartId, item, 1);
+        }
+
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> lineIds = new ArrayList<>();
+            cartRepository.findWithLinesById(cartId).get().getLines().forEach(line -> lineIds.add(line.getId()));
+            return lineIds;
+        });
+
+        assertEquals(3, ids.size());
+        assertEquals(ids.get(0) + 1, ids.get(1).longValue());
+        assertEquals(ids.get(1) + 1, ids.get(2).longValue());
+    }
+
+    private String createUser() {
+        return TestUtils.createUser(transactionTemplate, userRepository, cartRepository, "query-count-").getUsername();
+    }
+
+    private AuthenticatedUser principal(String username) {
+        UserCredentials credentials = userRepository.findCredentialsByUsername(username);
+        return new AuthenticatedUser(credentials.getId(), credentials.getCartId(), credentials.getUsername());
+    }
+
+    private void fillCart(String username, int distinctItems) {
+        AuthenticatedUser principal = principal(username);
+        for (int i = 0; i < distinctItems; i++) {
+            ModifyCartRequest modifyRequest = modifyRequest(username, items.get(i), i + 1);
+            request(() -> cartController.addTocart(modifyRequest, principal));
+        }
+    }
+
+    private Long placeOrders(String username, int orders, int distinctItems) {
+        Long lastOrderId = null;
+        AuthenticatedUser principal = principal(username);
+        for (int i = 0; i < orders; i++) {
+            fillCart(username, distinctItems);
+            lastOrderId = ((OrderResponse) request(() -> orderController.submit(username, null, principal))).getId();
+        }
+        return lastOrderId;
+    }
+
+    private static ModifyCartRequest modifyRequest(String username, Item item, int quantity) {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(username);
+        request.setItemId(item.getId());
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private Object request(Supplier<ResponseEntity<?>> call) {
+        return transactionTemplate.execute(status -> {
+            ResponseEntity<?> response = call.get();
+            assertEquals(200, response.getStatusCode().value());
+            try {
+                objectMapper.writeValueAsBytes(response.getBody());
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException(e);
+            }
+            return response.getBody();
+        });
+    }
+}
@@ -5,6 +5,7 @@ import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.UserCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.ResponseEntity;
@@ -14,8 +15,10 @@ import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class UserControllerTest {
@@ -23,6 +26,7 @@ public class UserControllerTest {
     private final UserRepository userRepository = mock(UserRepository.class);
     private final CartRepository cartRepository = mock(CartRepository.class);
     private final BCryptPasswordEncoder bCryptPasswordEncoder = mock(BCryptPasswordEncoder.class);
+    private final UserCache userCache = mock(UserCache.class);
 
     @Before
     public void setUp() {
@@ -30,6 +34,7 @@ public class UserControllerTest {
         TestUtils.injectObject(userController, "userRepository", userRepository);
         TestUtils.injectObject(userController, "cartRepository", cartRepository);
         TestUtils.injectObject(userController, "bCryptPasswordEncoder", bCryptPasswordEncoder);
+        TestUtils.injectObject(userController, "userCache", userCache);
     }
 
     @Test
@@ -50,6 +55,7 @@ public class UserControllerTest {
         assertNotNull(user);
         assertEquals(createUserRequest.getUsername(), user.getUsername());
         assertEquals("ThisIsUnitTest", user.getPassword());
+        verify(userCache).invalidate("test");
     }
 
     @Test
@@ -95,7 +101,7 @@ public class UserControllerTest {
 
         when(userRepository.findById(userCreated.getId())).thenReturn(Optional.of(userCreated));
 
-        ResponseEntity<User> response = userController.findById(userCreated.getId());
+        ResponseEntity<User> response = userController.findById(userCreated.getId(), null);
         User user = response.getBody();
         assertNotNull(user);
         assertEquals(userCreated.getId(), user.getId());
@@ -117,7 +123,7 @@ public class UserControllerTest {
 
         when(userRepository.findByUsername(userCreated.getUsername())).thenReturn(userCreated);
 
-        ResponseEntity<User> response = userController.findByUserName(userCreated.getUsername());
+        ResponseEntity<User> response = userController.findByUserName(userCreated.getUsername(), null);
         User user = response.getBody();
         assertNotNull(user);
         assertEquals(userCreated.getUsername(), user.getUsername());
@@ -139,9 +145,24 @@ public class UserControllerTest {
 
         when(userRepository.findByUsername(any())).thenReturn(any());
 
-        ResponseEntity<User> response = userController.findByUserName(userCreated.getUsername());
+        ResponseEntity<User> response = userController.findByUserName(userCreated.getUsername(), null);
         assertEquals(404, response.getStatusCode().value());
 
     }
 
+    @Test
+    public void find_by_id_matching_etag_returns_not_modified() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("test");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        String etag = userController.findById(7L, null).getHeaders().getETag();
+        ResponseEntity<User> response = userController.findById(7L, etag);
+
+        assertNotNull(etag);
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+        assertEquals(200, userController.findById(7L, "\"stale\"").getStatusCode().value());
+    }
 }
@@ -0,0 +1,77 @@
+package com.example.demo.security;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CalibratedBCryptPasswordEncoderTest {
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void upgradeEncoding_onlyForLowerCost() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5, executor);
+        String current = encoder.encode("testPassword");
+
+        assertTrue(encoder.matches("testPassword", current));
+        assertEquals(5, CalibratedBCryptPasswordEncoder.costOf(current));
+        assertFalse(encoder.upgradeEncoding(current));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("testPassword")));
+        assertFalse(encoder.upgradeEncoding("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    public void calibrate_staysWithinBounds() {
+        int strength = CalibratedBCryptPasswordEncoder.calibrate(1, 4, 6, executor).getStrength();
+        assertEquals(4, strength);
+        strength = CalibratedBCryptPasswordEncoder.calibrate(60_000, 4, 6, executor).getStrength();
+        assertEquals(6, strength);
+    }
+
+    @Test
+    public void execute_rejectsWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread(() -> executor.execute(() -> {
+            running.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        Thread queued = new Thread(() -> executor.execute(() -> null));
+        first.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        queued.start();
+        while (queued.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        try {
+            executor.execute(() -> null);
+            fail("Expected PasswordHashingRejectedException");
+        } catch (PasswordHashingRejectedException expected) {
+        } finally {
+            release.countDown();
+        }
+        first.join();
+        queued.join();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
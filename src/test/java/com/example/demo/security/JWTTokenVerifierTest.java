@@ -0,0 +1,48 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class JWTTokenVerifierTest {
+    private final JWTTokenVerifier tokenVerifier = new JWTTokenVerifier(100);
+
+    @Test
+    public void verify_cachesUntilExpiry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        tokenVerifier.bindTo(registry);
+        String token = sign("test", SecurityConstants.SECRET, System.currentTimeMillis() + 60_000);
+
+        JWTTokenVerifier.VerifiedToken first = tokenVerifier.verify(token);
+        JWTTokenVerifier.VerifiedToken second = tokenVerifier.verify(token);
+
+        assertEquals("test", first.getSubject());
+        assertSame(first, second);
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "security.verifiedTokens")
+                .tag("result", "hit").functionCounter().count(), 0.0);
+    }
+
+    @Test(expected = JWTVerificationException.class)
+    public void verify_rejectsWrongSignature() {
+        tokenVerifier.verify(sign("test", "notTheSecret", System.currentTimeMillis() + 60_000));
+    }
+
+    @Test(expected = JWTVerificationException.class)
+    public void verify_rejectsExpiredToken() {
+        tokenVerifier.verify(sign("test", SecurityConstants.SECRET, System.currentTimeMillis() - 60_000));
+    }
+
+    private static String sign(String subject, String secret, long expiresAt) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(expiresAt))
+                .sign(HMAC512(secret.getBytes()));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.security;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenRevocationListTest {
+    private final TokenRevocationList revocationList = new TokenRevocationList(1 << 12);
+
+    @Test
+    public void revoke_isExactAndExpires() {
+        long now = System.currentTimeMillis();
+        JWTTokenVerifier.VerifiedToken shortLived = token("a", now + 50);
+        JWTTokenVerifier.VerifiedToken longLived = token("b", now + 60_000);
+        revocationList.revoke(shortLived);
+        revocationList.revoke(longLived);
+
+        assertTrue(revocationList.isRevoked(shortLived));
+        assertTrue(revocationList.isRevoked(longLived));
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(revocationList.isRevoked(token("other-" + i, now + 60_000)));
+        }
+
+        sleep(100);
+        revocationList.sweep();
+        assertEquals(1, revocationList.size());
+        assertFalse(revocationList.isRevoked(shortLived));
+        assertTrue(revocationList.isRevoked(longLived));
+    }
+
+    @Test
+    public void revoke_reportsOnlyTheFirstRevocation() {
+        JWTTokenVerifier.VerifiedToken token = token("once", System.currentTimeMillis() + 60_000);
+
+        assertTrue(revocationList.revoke(token));
+        assertFalse(revocationList.revoke(token));
+    }
+
+    @Test
+    public void revoke_ignoresExpiredTokens() {
+        assertFalse(revocationList.revoke(token("expired", System.currentTimeMillis() - 1)));
+        assertEquals(0, revocationList.size());
+    }
+
+    private static JWTTokenVerifier.VerifiedToken token(String id, long expiresAt) {
+        return new JWTTokenVerifier.VerifiedToken("test", id, SecurityConstants.ACCESS_TOKEN_TYPE, 1L, 1L, expiresAt);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
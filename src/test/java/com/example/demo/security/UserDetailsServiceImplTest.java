@@ -0,0 +1,70 @@
+package com.example.demo.security;
+
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.repositories.UserCredentials;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserDetailsServiceImplTest {
+    private UserDetailsServiceImpl userDetailsService;
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserCache userCache = new UserCache(100, 60);
+
+    @Before
+    public void setUp() {
+        userDetailsService = new UserDetailsServiceImpl();
+        TestUtils.injectObject(userDetailsService, "userRepository", userRepository);
+        TestUtils.injectObject(userDetailsService, "userCache", userCache);
+    }
+
+    @Test
+    public void loadUser_isCachedAndSurvivesErasedCredentials() {
+        UserCredentials user = credentials("test");
+        when(userRepository.findCredentialsByUsername("test")).thenReturn(user);
+
+        UserDetails first = userDetailsService.loadUserByUsername("test");
+        ((org.springframework.security.core.userdetails.User) first).eraseCredentials();
+        UserDetails second = userDetailsService.loadUserByUsername("Test");
+
+        assertEquals("test", second.getUsername());
+        assertEquals("hashedPassword", second.getPassword());
+        verify(userRepository, times(1)).findCredentialsByUsername("test");
+    }
+
+    @Test
+    public void loadUser_unknownUsernameIsCachedUntilInvalidated() {
+        for (int i = 0; i < 3; i++) {
+            try {
+                userDetailsService.loadUserByUsername("nobody");
+                fail("Expected UsernameNotFoundException");
+            } catch (UsernameNotFoundException expected) {
+            }
+        }
+        verify(userRepository, times(1)).findCredentialsByUsername("nobody");
+
+        UserCredentials user = credentials("nobody");
+        when(userRepository.findCredentialsByUsername("nobody")).thenReturn(user);
+        userCache.invalidate("Nobody");
+
+        assertEquals("nobody", userDetailsService.loadUserByUsername("nobody").getUsername());
+    }
+
+    private static UserCredentials credentials(String username) {
+        UserCredentials credentials = mock(UserCredentials.class);
+        when(credentials.getId()).thenReturn(1L);
+        when(credentials.getCartId()).thenReturn(1L);
+        when(credentials.getUsername()).thenReturn(username);
+        when(credentials.getPassword()).thenReturn("hashedPassword");
+        return credentials;
+    }
+}
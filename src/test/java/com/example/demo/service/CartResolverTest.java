@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.repositories.UserCredentials;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.AuthenticatedUser;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CartResolverTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final CartResolver cartResolver = new CartResolver(userRepository);
+
+    private final AuthenticatedUser principal = new AuthenticatedUser(1L, 7L, "test");
+
+    @Test
+    public void ownCart_comesFromTheToken() {
+        assertEquals(Long.valueOf(7L), cartResolver.findCartId("TEST", principal));
+        assertEquals(Long.valueOf(7L), cartResolver.findCartId(null, principal));
+        verify(userRepository, never()).findCredentialsByUsername(any());
+    }
+
+    @Test
+    public void otherUsers_areLookedUp() {
+        UserCredentials credentials = mock(UserCredentials.class);
+        when(credentials.getCartId()).thenReturn(9L);
+        when(userRepository.findCredentialsByUsername("other")).thenReturn(credentials);
+
+        assertEquals(Long.valueOf(9L), cartResolver.findCartId("other", principal));
+        assertEquals(Long.valueOf(9L), cartResolver.findCartId("other", null));
+        assertNull(cartResolver.findCartId("nobody", principal));
+    }
+}
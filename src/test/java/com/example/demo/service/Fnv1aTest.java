@@ -0,0 +1,24 @@
+package com.example.demo.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class Fnv1aTest {
+
+    @Test
+    public void mix_ascii_matchesTheReferenceVectors() {
+        assertEquals(Fnv1a.OFFSET_BASIS, Fnv1a.mix(Fnv1a.OFFSET_BASIS, ""));
+        assertEquals(0xaf63dc4c8601ec8cL, Fnv1a.mix(Fnv1a.OFFSET_BASIS, "a"));
+        assertEquals(0x85944171f73967e8L, Fnv1a.mix(Fnv1a.OFFSET_BASIS, "foobar"));
+    }
+
+    @Test
+    public void mix_long_foldsItsBytesLowestFirst() {
+        long expected = Fnv1a.OFFSET_BASIS;
+        for (char c : "foobar\0\0".toCharArray()) {
+            expected = Fnv1a.mix(expected, String.valueOf(c));
+        }
+        assertEquals(expected, Fnv1a.mix(Fnv1a.OFFSET_BASIS, 0x7261626f6f66L));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.service;
+
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.Item;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ItemJsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ItemJsonCache cache = new ItemJsonCache(objectMapper, 100);
+
+    @Test
+    public void sameVersion_reusesTheSerializedBytes() {
+        Item item = item(1L, "Round Widget", 0);
+
+        assertSame(cache.toJson(item), cache.toJson(item(1L, "Round Widget", 0)));
+    }
+
+    @Test
+    public void newVersion_isSerializedAgain() throws Exception {
+        byte[] before = cache.toJson(item(1L, "Round Widget", 0));
+
+        byte[] after = cache.toJson(item(1L, "Rounder Widget", 1));
+
+        assertNotSame(before, after);
+        assertEquals("Rounder Widget", objectMapper.readTree(after).get("name").asText());
+    }
+
+    @Test
+    public void itemChange_dropsTheCachedJson() {
+        Item item = item(1L, "Round Widget", 0);
+        byte[] before = cache.toJson(item);
+
+        cache.onItemChanged(new ItemChangedEvent(item));
+
+        assertNotSame(before, cache.toJson(item));
+    }
+
+    @Test
+    public void toJsonArray_writesTheItemsInOrderWithoutInternalFields() throws Exception {
+        JsonNode array = objectMapper.readTree(cache.toJsonArray(Arrays.asList(
+                item(2L, "Square Widget", 0), item(1L, "Round Widget", 3))));
+
+        assertEquals(2, array.size());
+        assertEquals(2, array.get(0).get("id").asLong());
+        assertEquals("Round Widget", array.get(1).get("name").asText());
+        assertEquals(new BigDecimal("2.99"), array.get(1).get("price").decimalValue());
+        assertFalse(array.get(1).has("version"));
+        assertEquals("[]", new String(cache.toJsonArray(Collections.emptyList()), "UTF-8"));
+    }
+
+    private static Item item(Long id, String name, long version) {
+        Item item = TestUtils.item(id, name, "2.99");
+        item.setVersion(version);
+        return item;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.service;
+
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ItemSearchIndexTest {
+
+    private final ItemSearchIndex index = new ItemSearchIndex(mock(ItemRepository.class));
+
+    @Test
+    public void search_pagesThroughEveryMatchInRankOrder() {
+        for (long id = 100; id >= 1; id--) {
+            Item item = TestUtils.item(id, id % 3 == 0 ? "Round Widget " + id : "Gadget " + id, "1.00");
+            item.setDescription("A round thing");
+            index.index(item);
+        }
+
+        List<Long> paged = new ArrayList<>();
+        for (int offset = 0; offset < 110; offset += 7) {
+            for (Item item : index.search("ro", offset, 7)) {
+                paged.add(item.getId());
+            }
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = 3; id <= 100; id += 3) {
+            expected.add(id);
+        }
+        for (long id = 1; id <= 100; id++) {
+            if (id % 3 != 0) {
+                expected.add(id);
+            }
+        }
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    public void search_offsetPastTheMatches_isEmpty() {
+        index.index(TestUtils.item(1L, "Round Widget", "2.99"));
+
+        assertTrue(index.search("round", 1, 10).isEmpty());
+        assertTrue(index.search("round", Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+        assertEquals(1, index.search("round", 0, Integer.MAX_VALUE).size());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class PromotionEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void install_swapsThePlanInOneStep() {
+        PromotionEngine engine = new PromotionEngine(new ObjectMapper(), "");
+        PromotionPlan before = engine.getPlan();
+
+        PromotionPlan installed = engine.install(Collections.singletonList(PromotionRule.percentage(1L, "10")));
+
+        assertSame(installed, engine.getPlan());
+        assertEquals(0, before.lineDiscount(1L, 100, 1));
+        assertEquals(10, engine.getPlan().lineDiscount(1L, 100, 1));
+    }
+
+    @Test
+    public void install_invalidRules_keepsTheCurrentPlan() {
+        PromotionEngine engine = new PromotionEngine(new ObjectMapper(), "");
+        PromotionPlan current = engine.install(Collections.singletonList(PromotionRule.percentage(1L, "10")));
+
+        try {
+            engine.install(Collections.singletonList(PromotionRule.percentage(1L, "0")));
+            fail("expected the rule set to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertSame(current, engine.getPlan());
+        }
+    }
+
+    @Test
+    public void reload_picksUpEditsToTheRulesFile() throws Exception {
+        Path rules = folder.getRoot().toPath().resolve("promotions.json");
+        write(rules, "[{\"type\":\"PERCENTAGE\",\"itemId\":1,\"percent\":10}]", 1_000);
+        PromotionEngine engine = new PromotionEngine(new ObjectMapper(), rules.toString());
+
+        engine.reload();
+        assertEquals(10, engine.getPlan().lineDiscount(1L, 100, 1));
+
+        write(rules, "[{\"type\":\"TIERED\",\"itemId\":1,\"tiers\":[{\"minQuantity\":2,\"percent\":25}]}]", 2_000);
+        engine.reload();
+        assertEquals(0, engine.getPlan().lineDiscount(1L, 100, 1));
+        assertEquals(50, engine.getPlan().lineDiscount(1L, 100, 2));
+
+        PromotionPlan good = engine.getPlan();
+        write(rules, "[{\"type\":\"BUY_X_GET_Y\",\"itemId\":1,\"buy\":0,\"get\":1}]", 3_000);
+        engine.reload();
+        assertSame(good, engine.getPlan());
+    }
+
+    private static void write(Path path, String json, long modifiedMillis) throws Exception {
+        Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modifiedMillis));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.Cart;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class PromotionPlanTest {
+
+    @Test
+    public void percentage_roundsTheDiscountDown() {
+        PromotionPlan plan = PromotionPlan.compile(Collections.singletonList(PromotionRule.percentage(1L, "12.5")));
+
+        assertEquals(37, plan.lineDiscount(1L, 299, 1));
+        assertEquals(0, plan.lineDiscount(2L, 299, 1));
+    }
+
+    @Test
+    public void buyXGetY_givesAwayOnlyCompleteGroups() {
+        PromotionPlan plan = PromotionPlan.compile(Collections.singletonList(PromotionRule.buyXGetY(1L, 2, 1)));
+
+        assertEquals(0, plan.lineDiscount(1L, 100, 2));
+        assertEquals(100, plan.lineDiscount(1L, 100, 3));
+        assertEquals(100, plan.lineDiscount(1L, 100, 5));
+        assertEquals(200, plan.lineDiscount(1L, 100, 6));
+    }
+
+    @Test
+    public void tiered_usesTheHighestTierReached() {
+        PromotionPlan plan = PromotionPlan.compile(Collections.singletonList(PromotionRule.tiered(1L,
+                new PromotionRule.Tier(10, "20"), new PromotionRule.Tier(3, "10"))));
+
+        assertEquals(0, plan.lineDiscount(1L, 100, 2));
+        assertEquals(30, plan.lineDiscount(1L, 100, 3));
+        assertEquals(200, plan.lineDiscount(1L, 100, 10));
+    }
+
+    @Test
+    public void lineRules_doNotStack_theBestOneWins() {
+        PromotionPlan plan = PromotionPlan.compile(Arrays.asList(
+                PromotionRule.percentage(null, "5"),
+                PromotionRule.percentage(1L, "10"),
+                PromotionRule.buyXGetY(1L, 1, 1)));
+
+        assertEquals(10, plan.lineDiscount(1L, 100, 1));
+        assertEquals(100, plan.lineDiscount(1L, 100, 2));
+        assertEquals(5, plan.lineDiscount(2L, 100, 1));
+    }
+
+    @Test
+    public void apply_takesCartDiscountOffTheSubtotalLeftAfterLineDiscounts() {
+        PromotionPlan plan = PromotionPlan.compile(Arrays.asList(
+                PromotionRule.buyXGetY(1L, 2, 1),
+                PromotionRule.cartPercentage("5.00", "10"),
+                PromotionRule.cartPercentage("20.00", "50")));
+        Cart cart = new Cart();
+        TestUtils.addItem(cart, TestUtils.item(1L, "Widget 1", "2.00"), 3);
+        TestUtils.addItem(cart, TestUtils.item(2L, "Widget 2", "1.00"), 1);
+
+        plan.apply(cart);
+
+        // 7.00 subtotal, 2.00 free, then 10% of the remaining 5.00
+        assertEquals(200, cart.getLine(TestUtils.item(1L, "Widget 1", "2.00")).getDiscountMinor());
+        assertEquals(250, cart.getDiscountMinor());
+        assertEquals(700, cart.getTotal().getMinorUnits());
+        assertEquals(450, cart.getPayable().getMinorUnits());
+    }
+
+    @Test
+    public void apply_toCartWithHundredsOfLines_discountsEveryLine() {
+        PromotionPlan plan = PromotionPlan.compile(Collections.singletonList(PromotionRule.percentage(null, "10")));
+        Cart cart = new Cart();
+        for (long id = 1; id <= 500; id++) {
+            TestUtils.addItem(cart, TestUtils.item(id, "Widget " + id, "1.00"), 2);
+        }
+
+        plan.apply(cart);
+
+        assertEquals(500 * 20, cart.getDiscountMinor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_rejectsPercentOverOneHundred() {
+        PromotionPlan.compile(Collections.singletonList(PromotionRule.percentage(1L, "100.01")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_rejectsBuyXGetYWithoutAnItem() {
+        PromotionPlan.compile(Collections.singletonList(PromotionRule.buyXGetY(null, 2, 1)));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.ItemStock;
+import com.example.demo.model.persistence.repositories.ItemStockRepository;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StockLedgerTest {
+
+    private final ItemStockRepository itemStockRepository = mock(ItemStockRepository.class);
+
+    @Test
+    public void concurrentReservations_neverOversellAHotItem() throws Exception {
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 1000)));
+        StockLedger ledger = new StockLedger(itemStockRepository);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int reserved = 0;
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        ledger.reserve(Collections.singletonMap(1L, 1));
+                        reserved++;
+                    } catch (InsufficientStockException e) {
+                        assertEquals(Long.valueOf(1L), e.getItemId());
+                    }
+                }
+                return reserved;
+            }));
+        }
+        start.countDown();
+        int reserved = 0;
+        for (Future<Integer> result : results) {
+            reserved += result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(1000, reserved);
+        assertEquals(Long.valueOf(0), ledger.available(1L));
+    }
+
+    @Test
+    public void shortItem_takesNothingFromTheOthers() {
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 10)));
+        when(itemStockRepository.findById(2L)).thenReturn(Optional.of(new ItemStock(2L, 1)));
+        when(itemStockRepository.findById(3L)).thenReturn(Optional.empty());
+        StockLedger ledger = new StockLedger(itemStockRepository);
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        quantities.put(1L, 4);
+        quantities.put(2L, 2);
+        quantities.put(3L, 100);
+        try {
+            ledger.reserve(quantities);
+            fail("expected a shortfall on item 2");
+        } catch (InsufficientStockException e) {
+            assertEquals(Long.valueOf(2L), e.getItemId());
+        }
+
+        assertEquals(Long.valueOf(10), ledger.available(1L));
+        assertEquals(Long.valueOf(1), ledger.available(2L));
+        assertNull(ledger.available(3L));
+    }
+
+    @Test
+    public void holds_areReturnedOnReleaseButNotOnConfirm() {
+        when(itemStockRepository.findById(any())).thenReturn(Optional.of(new ItemStock(1L, 10)));
+        StockLedger ledger = new StockLedger(itemStockRepository);
+
+        StockLedger.Hold released = ledger.reserve(Collections.singletonMap(1L, 3));
+        StockLedger.Hold confirmed = ledger.reserve(Collections.singletonMap(1L, 2));
+        ledger.reserve(Collections.singletonMap(1L, 4));
+        assertEquals(Long.valueOf(1), ledger.available(1L));
+
+        ledger.release(released);
+        ledger.release(released);
+        ledger.confirm(confirmed);
+        assertEquals(Long.valueOf(4), ledger.available(1L));
+
+        ledger.release(confirmed);
+        assertEquals(Long.valueOf(4), ledger.available(1L));
+    }
+
+    @Test
+    public void crossedOrders_deductTheirItemsInTheSameOrder() {
+        when(itemStockRepository.findById(any())).thenAnswer(invocation ->
+                Optional.of(new ItemStock(invocation.getArgument(0), 10)));
+        when(itemStockRepository.deduct(any(), anyLong())).thenReturn(1);
+        StockLedger ledger = new StockLedger(itemStockRepository);
+        // 1 and 17 share a bucket of a 16-slot HashMap, so there they keep insertion order
+        Map<Long, Integer> first = new LinkedHashMap<>();
+        first.put(17L, 1);
+        first.put(1L, 1);
+        Map<Long, Integer> second = new LinkedHashMap<>();
+        second.put(1L, 1);
+        second.put(17L, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ledger.reserveForOrder(first);
+            ledger.reserveForOrder(second);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        InOrder deductions = inOrder(itemStockRepository);
+        deductions.verify(itemStockRepository).deduct(1L, 1);
+        deductions.verify(itemStockRepository).deduct(17L, 1);
+        deductions.verify(itemStockRepository).deduct(1L, 1);
+        deductions.verify(itemStockRepository).deduct(17L, 1);
+    }
+
+    @Test
+    public void stockAddedWhileLoading_isNotLost() {
+        StockLedger ledger = new StockLedger(itemStockRepository);
+        List<Long> loads = new ArrayList<>();
+        when(itemStockRepository.findById(1L)).thenAnswer(invocation -> {
+            loads.add(1L);
+            if (loads.size() == 1) {
+                // a delivery commits while this read is in flight
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                    ledger.addStock(1L, 5);
+                    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                        synchronization.afterCommit();
+                    }
+                } finally {
+                    TransactionSynchronizationManager.clearSynchronization();
+                }
+                return Optional.of(new ItemStock(1L, 10));
+            }
+            return Optional.of(new ItemStock(1L, 15));
+        });
+        when(itemStockRepository.add(1L, 5)).thenReturn(1);
+
+        assertEquals(Long.valueOf(15), ledger.available(1L));
+        assertEquals(2, loads.size());
+    }
+}